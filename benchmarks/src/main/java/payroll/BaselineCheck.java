@@ -0,0 +1,123 @@
+package payroll;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// BaselineCheck class for comparing a benchmark run against a committed baseline. Both files are
+// JMH CSV results (-rf csv). Every benchmark that got slower than the baseline by more than the
+// allowed percentage is reported, and the exit status is 1 if there was any. The committed
+// baselines were recorded with the default iterations of each benchmark:
+//
+//   java -jar benchmarks/target/benchmarks.jar -p size=10000,100000 -e EmployeeIndexBenchmark -rf csv -rff current.csv
+//   java -jar benchmarks/target/benchmarks.jar EmployeeIndexBenchmark -p size=1000000 -rf csv -rff current-index.csv
+//   java -cp benchmarks/target/benchmarks.jar payroll.BaselineCheck \
+//       benchmarks/baselines/baseline.csv current.csv [max-regression-percent]
+//
+// The 1M and 10M datasets are left out of the baselines to keep the run short; pass -p size=... to measure them.
+public class BaselineCheck {
+    private static final double DEFAULT_MAX_REGRESSION_PERCENT = 10;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && args.length != 3) {
+            System.out.println("Usage: BaselineCheck <baseline.csv> <current.csv> [max-regression-percent]");
+            System.exit(2);
+        }
+        double maxRegression = args.length == 3 ? Double.parseDouble(args[2]) : DEFAULT_MAX_REGRESSION_PERCENT;
+        Map<String, Result> baseline = read(args[0]);
+        Map<String, Result> current = read(args[1]);
+
+        int regressions = 0;
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            Result now = entry.getValue();
+            if (before == null || !before.unit.equals(now.unit)) {
+                System.out.printf("%-70s %14.3f %-10s (no baseline)%n", entry.getKey(), now.score, now.unit);
+                continue;
+            }
+            // Throughput is better when higher, every time-based mode when lower
+            double change = now.higherIsBetter()
+                    ? (before.score - now.score) / before.score * 100
+                    : (now.score - before.score) / before.score * 100;
+            boolean regressed = change > maxRegression;
+            if (regressed) regressions++;
+            System.out.printf("%-70s %14.3f %-10s %+7.1f%% slower%s%n", entry.getKey(), now.score, now.unit,
+                    change, regressed ? "  REGRESSION" : "");
+        }
+        System.out.println(regressions + " regression(s) over " + maxRegression + "%");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    private static Map<String, Result> read(String file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            List<String> header = fields(reader.readLine());
+            int benchmark = header.indexOf("Benchmark");
+            int mode = header.indexOf("Mode");
+            int score = header.indexOf("Score");
+            int unit = header.indexOf("Unit");
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                List<String> row = fields(line);
+                StringBuilder key = new StringBuilder(row.get(benchmark));
+                for (int i = 0; i < header.size(); i++) {
+                    if (header.get(i).startsWith("Param: ") && !row.get(i).isEmpty()) {
+                        key.append(' ').append(header.get(i).substring(7)).append('=').append(row.get(i));
+                    }
+                }
+                results.put(key.toString(), new Result(row.get(mode), Double.parseDouble(row.get(score)), row.get(unit)));
+            }
+        }
+        return results;
+    }
+
+    // Split one CSV line; fields may be quoted, with "" standing for a quote
+    private static List<String> fields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static final class Result {
+        final String mode;
+        final double score;
+        final String unit;
+
+        Result(String mode, double score, String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.unit = unit;
+        }
+
+        boolean higherIsBetter() {
+            return mode.equals("thrpt");
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package payroll;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Parsing of typed input for the update menu and the bulk importer
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChangedValueBenchmark {
+
+    @Param({"160", "27.5", "true", "Alice Smith"})
+    public String input;
+
+    @Benchmark
+    public Object changedValue() {
+        return PayrollSystem.changedValue(input);
+    }
+}
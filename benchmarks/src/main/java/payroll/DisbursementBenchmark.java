@@ -0,0 +1,67 @@
+package payroll;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Writing a run's bank batch files and check register with DisbursementRun, formatting partitions
+// on the common pool and on a single thread.
+// Payments per second is size divided by the score.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class DisbursementBenchmark {
+    private static final LocalDate PAY_DATE = LocalDate.of(2024, 5, 31);
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private Employee[] employees;
+    private File directory;
+    private DisbursementRun parallel;
+    private DisbursementRun oneThread;
+    private ForkJoinPool singlePool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        employees = PayrollDataset.employees(size);
+        directory = Files.createTempDirectory("payroll-bench").toFile();
+        parallel = new DisbursementRun();
+        singlePool = new ForkJoinPool(1);
+        oneThread = new DisbursementRun(singlePool, PayrollRun.DEFAULT_PARTITION_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        singlePool.shutdown();
+        deleteTree(directory);
+    }
+
+    @Benchmark
+    public DisbursementResult disburse() throws IOException {
+        return parallel.run(employees, PAY_DATE, new File(directory, "run"));
+    }
+
+    @Benchmark
+    public DisbursementResult disburseOneThread() throws IOException {
+        return oneThread.run(employees, PAY_DATE, new File(directory, "run"));
+    }
+
+    private static void deleteTree(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,82 @@
+package payroll;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Lookups and full scans of DenseEmployeeIndex against the HashMap<Integer, Employee> it replaced,
+// and one picker-sized page from a random cursor
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class EmployeeIndexBenchmark {
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    private DenseEmployeeIndex index;
+    private Map<Integer, Employee> hashMap;
+    private int[] lookupIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Employee[] employees = PayrollDataset.employees(size);
+        index = new DenseEmployeeIndex();
+        hashMap = new HashMap<>();
+        for (Employee employee : employees) {
+            index.put(employee);
+            hashMap.put(employee.getEmployeeId(), employee);
+        }
+        Random random = new Random(PayrollDataset.SEED);
+        lookupIds = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookupIds[i] = PayrollDataset.FIRST_ID + random.nextInt(size);
+        }
+    }
+
+    @Benchmark
+    public Employee indexGet() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return index.get(lookupIds[next]);
+    }
+
+    @Benchmark
+    public Employee hashMapGet() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return hashMap.get(lookupIds[next]);
+    }
+
+    @Benchmark
+    public EmployeePage indexPage() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return index.page(lookupIds[next], 20);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long indexScan() {
+        long sum = 0;
+        for (Employee employee : index.values()) {
+            sum += employee.getEmployeeId();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long hashMapScan() {
+        long sum = 0;
+        for (Employee employee : hashMap.values()) {
+            sum += employee.getEmployeeId();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,58 @@
+package payroll;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Memory per employee of the object store against ColumnarPayroll. Each operation is one employee,
+// so with -prof gc the gc.alloc.rate.norm line is the bytes allocated per employee, including the
+// garbage left by growing the arrays.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FootprintBenchmark {
+    private static final int EMPLOYEES = 100_000;
+
+    private Employee[] employees;
+    private String[] names;
+    private double[] rates;
+    private int[] counts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        employees = PayrollDataset.employees(EMPLOYEES);
+        names = new String[EMPLOYEES];
+        rates = new double[EMPLOYEES];
+        counts = new int[EMPLOYEES];
+        Random random = new Random(PayrollDataset.SEED);
+        for (int i = 0; i < EMPLOYEES; i++) {
+            names[i] = employees[i].getName();
+            rates[i] = 15 + random.nextInt(60);
+            counts[i] = random.nextInt(200);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EMPLOYEES)
+    public EmployeeIndex objects() {
+        EmployeeIndex index = new DenseEmployeeIndex();
+        for (int i = 0; i < EMPLOYEES; i++) {
+            index.put(new HourlyEmployee(PayrollDataset.FIRST_ID + i, names[i], rates[i], counts[i]));
+        }
+        return index;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EMPLOYEES)
+    public ColumnarPayroll columns() {
+        ColumnarPayroll columns = new ColumnarPayroll();
+        for (Employee employee : employees) {
+            columns.addEmployee(employee);
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,73 @@
+package payroll;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Saving one changed employee: queueing its journal record, and waiting until it is written, alone
+// and with eight threads sharing each write (and fsync) through group commit
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JournalAppendBenchmark {
+    private static final int EMPLOYEES = 10_000;
+
+    @Param({"NEVER", "EVERY_FLUSH"})
+    public String fsync;
+
+    private File directory;
+    private EmployeeJournal journal;
+    private Employee[] employees;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("payroll-bench").toFile();
+        employees = PayrollDataset.employees(EMPLOYEES);
+    }
+
+    // A fresh journal per iteration keeps the file from growing across the whole run
+    @Setup(Level.Iteration)
+    public void openJournal() throws IOException {
+        journal = new EmployeeJournal(new File(directory, "employees.bin"), Long.MAX_VALUE,
+                EmployeeJournal.FsyncPolicy.valueOf(fsync), EmployeeJournal.DEFAULT_FLUSH_INTERVAL_MILLIS);
+        journal.replay(new DenseEmployeeIndex());
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeJournal() throws IOException {
+        journal.close();
+        new File(directory, "employees.bin.journal").delete();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        directory.delete();
+    }
+
+    @Benchmark
+    public long recordUpsert() throws IOException {
+        next = (next + 1) % EMPLOYEES;
+        return journal.recordUpsert(employees[next]);
+    }
+
+    @Benchmark
+    public void recordUpsertDurable() throws IOException {
+        next = (next + 1) % EMPLOYEES;
+        journal.awaitDurable(journal.recordUpsert(employees[next]));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void recordUpsertDurableShared() throws IOException {
+        int employee = ThreadLocalRandom.current().nextInt(EMPLOYEES);
+        journal.awaitDurable(journal.recordUpsert(employees[employee]));
+    }
+}
@@ -0,0 +1,99 @@
+package payroll;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Startup and lookups of LazyEmployeeIndex against loading every employee into a DenseEmployeeIndex:
+// opening the snapshot both ways, lookups from a small working set that fits the cache and from all
+// employees, and a full scan that reads straight from the file.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class LazyLoadBenchmark {
+    private static final int LOOKUPS = 1 << 16;
+    private static final int WORKING_SET = 1_000; // Employees a few sessions keep coming back to
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private File directory;
+    private File snapshotFile;
+    private LazyEmployeeIndex lazy;
+    private int[] workingSetIds;
+    private int[] anyIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("payroll-bench").toFile();
+        snapshotFile = new File(directory, "employees.bin");
+        BinaryEmployeeStore.write(snapshotFile, Arrays.asList(PayrollDataset.employees(size)));
+        lazy = LazyEmployeeIndex.open(snapshotFile, LazyEmployeeIndex.DEFAULT_CACHE_CAPACITY);
+
+        Random random = new Random(PayrollDataset.SEED);
+        workingSetIds = new int[LOOKUPS];
+        anyIds = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            workingSetIds[i] = PayrollDataset.FIRST_ID + random.nextInt(WORKING_SET);
+            anyIds[i] = PayrollDataset.FIRST_ID + random.nextInt(size);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        lazy.close();
+        snapshotFile.delete();
+        directory.delete();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public EmployeeIndex openEager() throws IOException {
+        EmployeeIndex index = new DenseEmployeeIndex();
+        try (BinaryEmployeeStore store = BinaryEmployeeStore.open(snapshotFile)) {
+            for (int i = 0; i < store.size(); i++) {
+                index.put(store.read(i));
+            }
+        }
+        return index;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int openLazy() throws IOException {
+        try (LazyEmployeeIndex index = LazyEmployeeIndex.open(snapshotFile, LazyEmployeeIndex.DEFAULT_CACHE_CAPACITY)) {
+            return index.size();
+        }
+    }
+
+    @Benchmark
+    public Employee workingSetGet() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return lazy.get(workingSetIds[next]);
+    }
+
+    @Benchmark
+    public Employee anyGet() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return lazy.get(anyIds[next]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long scan() {
+        long sum = 0;
+        for (Employee employee : lazy.values()) {
+            sum += employee.getEmployeeId();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,86 @@
+package payroll;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Two years of monthly payroll runs in the ledger: one employee's pay over a quarter, a scan of a
+// whole quarter, and writing one run
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LedgerBenchmark {
+    private static final int RUNS = 24;
+    private static final LocalDate FIRST_PAY_DATE = LocalDate.of(2023, 1, 31);
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    private File directory;
+    private PayrollLedger ledger;
+    private Employee[] employees;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("payroll-ledger").toFile();
+        employees = PayrollDataset.employees(size);
+        ledger = new PayrollLedger(directory);
+        ledger.open();
+        for (int i = 0; i < RUNS; i++) {
+            writeRun(FIRST_PAY_DATE.plusMonths(i)).commit();
+        }
+        random = new Random(PayrollDataset.SEED);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ledger.close();
+        try (var files = Files.walk(directory.toPath())) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public List<LedgerEntry> employeeQuarter() throws IOException {
+        int employeeId = PayrollDataset.FIRST_ID + random.nextInt(size);
+        return ledger.history(employeeId, LocalDate.of(2024, 4, 1), LocalDate.of(2024, 6, 30));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long scanQuarter() throws IOException {
+        long[] gross = new long[1];
+        ledger.scan(LocalDate.of(2024, 4, 1), LocalDate.of(2024, 6, 30), entry -> gross[0] += entry.getGross());
+        return gross[0];
+    }
+
+    // Written but not committed, so the ledger does not grow between invocations
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int writeRun() throws IOException {
+        try (PayrollLedger.RunWriter run = writeRun(FIRST_PAY_DATE.plusMonths(RUNS))) {
+            return run.getEntries();
+        }
+    }
+
+    private PayrollLedger.RunWriter writeRun(LocalDate payDate) throws IOException {
+        PayrollLedger.RunWriter run = ledger.beginRun(payDate);
+        for (Employee employee : employees) {
+            long pay = employee.calculatePay();
+            run.add(employee.getEmployeeId(), pay, TaxCalculator.calculateTax(employee, pay));
+        }
+        return run;
+    }
+}
@@ -0,0 +1,49 @@
+package payroll;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Checking a user: the full password hash on login against a session token lookup afterwards
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginBenchmark {
+    private static final String USER = "clerk";
+    private static final String PASSWORD = "correct horse battery staple";
+
+    private File credentialsFile;
+    private CredentialStore credentials;
+    private SessionCache sessions;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        credentialsFile = File.createTempFile("credentials", ".txt");
+        credentials = new CredentialStore(credentialsFile);
+        credentials.load();
+        credentials.register(USER, PASSWORD);
+        sessions = new SessionCache(SessionCache.DEFAULT_TTL_MILLIS);
+        token = sessions.open(USER);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        credentialsFile.delete();
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return credentials.verify(USER, PASSWORD);
+    }
+
+    @Benchmark
+    public String validateSession() {
+        return sessions.validate(token);
+    }
+}
@@ -0,0 +1,100 @@
+package payroll;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// What PayrollMetrics adds to the hot path: a counter increment, a histogram recording, and a
+// recording with its two System.nanoTime() calls, alone and from several threads at once; and the
+// in-memory part of updateDetails (copy, index, running totals) with and without its timing.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+    private static final int EMPLOYEES = 1 << 14;
+
+    private final PayrollMetrics metrics = new PayrollMetrics();
+    private final LongAdder counter = metrics.counter("benchmark.operations");
+    private final LatencyHistogram histogram = metrics.timer("benchmark");
+    private final EmployeeIndex index = new DenseEmployeeIndex();
+    private final PayrollAggregates aggregates = new PayrollAggregates();
+    private Employee[] employees;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        employees = PayrollDataset.employees(EMPLOYEES);
+        for (Employee employee : employees) {
+            index.put(employee);
+            aggregates.add(employee);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        long value = 1;
+
+        int nextEmployee() {
+            next = (next + 1) & (EMPLOYEES - 1);
+            return next;
+        }
+    }
+
+    @Benchmark
+    public void counterIncrement() {
+        counter.increment();
+    }
+
+    @Benchmark
+    public void histogramRecord(Cursor cursor) {
+        cursor.value = cursor.value * 6364136223846793005L + 1442695040888963407L; // Spread over the buckets
+        histogram.record((cursor.value >>> 40) & 0xFFFFF);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void histogramRecordShared(Cursor cursor) {
+        cursor.value = cursor.value * 6364136223846793005L + 1442695040888963407L;
+        histogram.record((cursor.value >>> 40) & 0xFFFFF);
+    }
+
+    @Benchmark
+    public void timedEmpty() {
+        long start = System.nanoTime();
+        histogram.recordSince(start);
+    }
+
+    @Benchmark
+    public Employee updateUntimed(Cursor cursor) {
+        return update(employees[cursor.nextEmployee()].getEmployeeId());
+    }
+
+    @Benchmark
+    public Employee updateTimed(Cursor cursor) {
+        long start = System.nanoTime();
+        try {
+            return update(employees[cursor.nextEmployee()].getEmployeeId());
+        } finally {
+            histogram.recordSince(start);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String dump() {
+        return metrics.dump();
+    }
+
+    private Employee update(int employeeId) {
+        Employee current = index.get(employeeId);
+        Employee changed = current.copy();
+        changed.setName(current.getName());
+        index.put(changed);
+        aggregates.replace(current, changed);
+        return changed;
+    }
+}
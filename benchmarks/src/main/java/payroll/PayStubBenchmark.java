@@ -0,0 +1,52 @@
+package payroll;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Pay stub text for each employee type, and the tax calculation behind it
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayStubBenchmark {
+    private final SalariedEmployee salaried = new SalariedEmployee(101, "Alice Smith", 85_000);
+    private final HourlyEmployee hourly = new HourlyEmployee(102, "Bob Jones", 27.5, 160);
+    private final CommissionedEmployee commissioned = new CommissionedEmployee(103, "Carol White", 0.07, 240_000);
+    private final StringBuilder stub = new StringBuilder(256);
+
+    @Benchmark
+    public String salariedPayStub() {
+        return salaried.generatePayStub();
+    }
+
+    @Benchmark
+    public String hourlyPayStub() {
+        return hourly.generatePayStub();
+    }
+
+    @Benchmark
+    public String commissionedPayStub() {
+        return commissioned.generatePayStub();
+    }
+
+    // What PayslipArchiver does: append into one reused builder
+    @Benchmark
+    public StringBuilder appendPayStubs() {
+        stub.setLength(0);
+        salaried.appendPayStub(stub);
+        hourly.appendPayStub(stub);
+        commissioned.appendPayStub(stub);
+        return stub;
+    }
+
+    @Benchmark
+    public void calculateTax(Blackhole blackhole) {
+        blackhole.consume(TaxCalculator.calculateTax(salaried, salaried.calculatePay()));
+        blackhole.consume(TaxCalculator.calculateTax(hourly, hourly.calculatePay()));
+        blackhole.consume(TaxCalculator.calculateTax(commissioned, commissioned.calculatePay()));
+    }
+}
@@ -0,0 +1,231 @@
+package payroll;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// PayrollApiLoadTest class for loading the HTTP API (PayrollHttpServer) with thousands of open
+// connections from one machine. Every connection is a client that sends its next request as soon
+// as the previous one is answered: 70% employee reads, 15% single payslips, 10% payroll totals and
+// 5% name changes, all with one session token. After a warmup it prints requests per second and
+// latency percentiles as the clients saw them, and as the server measured them when it runs here.
+// This is not a JMH benchmark: JMH drives a few threads, not thousands of connections.
+//
+//   java -cp benchmarks/target/benchmarks.jar payroll.PayrollApiLoadTest [connections] [seconds] [employees]
+//   java -cp benchmarks/target/benchmarks.jar payroll.PayrollApiLoadTest <connections> <seconds> <url> <user> <password>
+//
+// Without a url the payroll system and the server are started in this process, on a free port, with
+// the given number of synthetic employees. That writes the app's data files to the current
+// directory, so run it from an empty one. Defaults: 2000 connections, 30 seconds, 10000 employees.
+public class PayrollApiLoadTest {
+    private static final int DEFAULT_CONNECTIONS = 2000;
+    private static final int DEFAULT_SECONDS = 30;
+    private static final int DEFAULT_EMPLOYEES = 10_000;
+    private static final int WARMUP_SECONDS = 10;
+    private static final String USER = "loadtest";
+    private static final String PASSWORD = "load test password";
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+    private static final Pattern NEXT_CURSOR = Pattern.compile("\"nextCursor\":(-?\\d+)");
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final String authorization;
+    private final int[] ids;
+    private final long measureFrom;
+    private final long stopAt;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicReference<String> firstError = new AtomicReference<>();
+    private final CountDownLatch finished;
+
+    private PayrollApiLoadTest(HttpClient client, String baseUrl, String token, int[] ids, int connections, int seconds) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.authorization = "Bearer " + token;
+        this.ids = ids;
+        this.measureFrom = System.nanoTime() + WARMUP_SECONDS * 1_000_000_000L;
+        this.stopAt = measureFrom + seconds * 1_000_000_000L;
+        this.finished = new CountDownLatch(connections);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 5 || args.length == 4) {
+            System.out.println("Usage: PayrollApiLoadTest [connections] [seconds] [employees]"
+                    + " | <connections> <seconds> <url> <user> <password>");
+            System.exit(2);
+        }
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CONNECTIONS;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        ExecutorService clientThreads = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(clientThreads)
+                .build();
+
+        PayrollSystem system = null;
+        PayrollHttpServer server = null;
+        String baseUrl;
+        String user = USER;
+        String password = PASSWORD;
+        try {
+            if (args.length == 5) {
+                baseUrl = args[2].replaceAll("/+$", "") + "/api";
+                user = args[3];
+                password = args[4];
+            } else {
+                int employees = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_EMPLOYEES;
+                system = new PayrollSystem();
+                system.registerUser(USER, PASSWORD);
+                Random random = new Random(PayrollDataset.SEED);
+                for (int i = 0; i < employees; i++) {
+                    Employee employee = PayrollDataset.employee(PayrollDataset.FIRST_ID + i, random);
+                    EmployeeIdGenerator.ensureAbove(employee.getEmployeeId());
+                    system.createEmployee(employee);
+                }
+                system.awaitPersisted();
+                server = new PayrollHttpServer(system, new InetSocketAddress("localhost", 0),
+                        PayrollHttpServer.DEFAULT_BACKLOG, PayrollHttpServer.DEFAULT_PLATFORM_THREADS);
+                server.start();
+                baseUrl = "http://localhost:" + server.getPort() + "/api";
+                System.out.println("Serving " + employees + " employees from " + new File("").getAbsolutePath()
+                        + " on port " + server.getPort());
+            }
+
+            String token = login(client, baseUrl, user, password);
+            int[] ids = employeeIds(client, baseUrl, token);
+            if (ids.length == 0) {
+                System.out.println("No employees to read");
+                return;
+            }
+            System.out.printf("%d connections, %d s warmup, %d s measured, %d employees%n",
+                    connections, WARMUP_SECONDS, seconds, ids.length);
+            PayrollApiLoadTest test = new PayrollApiLoadTest(client, baseUrl, token, ids, connections, seconds);
+            test.run(connections);
+            test.report(seconds);
+            if (system != null) {
+                LatencyHistogram serverTimes = system.getMetrics().timer("http.request");
+                System.out.printf("server: %d requests, p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms (warmup included)%n",
+                        serverTimes.getCount(), millis(serverTimes.getPercentileNanos(50)),
+                        millis(serverTimes.getPercentileNanos(99)), millis(serverTimes.getPercentileNanos(99.9)));
+            }
+        } finally {
+            if (server != null) server.close();
+            if (system != null) system.close();
+            clientThreads.shutdownNow();
+        }
+    }
+
+    private void run(int connections) throws InterruptedException {
+        for (int i = 0; i < connections; i++) {
+            next();
+        }
+        finished.await();
+    }
+
+    // Send one request, and the next when it is answered, until the time is up
+    private void next() {
+        long start = System.nanoTime();
+        if (start >= stopAt) {
+            finished.countDown();
+            return;
+        }
+        client.sendAsync(request(), HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+            long end = System.nanoTime();
+            if (start >= measureFrom && end < stopAt) {
+                latencies.record(end - start);
+                requests.increment();
+                if (failure != null || response.statusCode() >= 300) {
+                    errors.increment();
+                    firstError.compareAndSet(null, failure != null ? String.valueOf(failure) : "HTTP " + response.statusCode());
+                }
+            }
+            next();
+        });
+    }
+
+    private HttpRequest request() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int id = ids[random.nextInt(ids.length)];
+        int kind = random.nextInt(100);
+        HttpRequest.Builder request = HttpRequest.newBuilder().header("Authorization", authorization)
+                .timeout(Duration.ofSeconds(60));
+        if (kind < 70) {
+            return request.uri(URI.create(baseUrl + "/employees/" + id)).GET().build();
+        } else if (kind < 85) {
+            return request.uri(URI.create(baseUrl + "/payslips/" + id)).GET().build();
+        } else if (kind < 95) {
+            return request.uri(URI.create(baseUrl + "/payroll/totals")).GET().build();
+        }
+        return request.uri(URI.create(baseUrl + "/employees/" + id))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"name\":\"Employee" + id + "\"}"))
+                .build();
+    }
+
+    private void report(int seconds) {
+        long count = requests.sum();
+        System.out.printf("%d requests in %d s: %.0f requests/s, %d errors%s%n", count, seconds, (double) count / seconds,
+                errors.sum(), firstError.get() != null ? " (first: " + firstError.get() + ")" : "");
+        System.out.printf("client latency: p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+                millis(latencies.getPercentileNanos(50)), millis(latencies.getPercentileNanos(90)),
+                millis(latencies.getPercentileNanos(99)), millis(latencies.getPercentileNanos(99.9)),
+                millis(latencies.getMaxNanos()));
+    }
+
+    private static String login(HttpClient client, String baseUrl, String user, String password)
+            throws IOException, InterruptedException {
+        StringBuilder body = new StringBuilder("{\"username\":");
+        PayrollHttpServer.appendString(body, user).append(",\"password\":");
+        PayrollHttpServer.appendString(body, password).append('}');
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString())).build(), HttpResponse.BodyHandlers.ofString());
+        Matcher token = TOKEN.matcher(response.body());
+        if (response.statusCode() != 200 || !token.find()) {
+            throw new IOException("Login failed: HTTP " + response.statusCode() + " " + response.body());
+        }
+        return token.group(1);
+    }
+
+    // The ids of the employees there are, a page at a time
+    private static int[] employeeIds(HttpClient client, String baseUrl, String token) throws IOException, InterruptedException {
+        List<Integer> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            String url = baseUrl + "/employees?limit=1000" + (cursor != null ? "&cursor=" + cursor : "");
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url))
+                    .header("Authorization", "Bearer " + token).GET().build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("Listing employees failed: HTTP " + response.statusCode() + " " + response.body());
+            }
+            Matcher id = ID.matcher(response.body());
+            while (id.find()) {
+                ids.add(Integer.parseInt(id.group(1)));
+            }
+            Matcher next = NEXT_CURSOR.matcher(response.body());
+            cursor = next.find() ? next.group(1) : null;
+        } while (cursor != null);
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
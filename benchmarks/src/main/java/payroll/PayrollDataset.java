@@ -0,0 +1,37 @@
+package payroll;
+
+import java.util.Random;
+
+// PayrollDataset class for building the synthetic employees the benchmarks run on. The same size
+// and seed always give the same employees, so results from different runs compare like for like.
+final class PayrollDataset {
+    static final long SEED = 20240501L;
+    static final int FIRST_ID = 101;
+
+    private PayrollDataset() {
+    }
+
+    // Employees with consecutive ids from FIRST_ID, the three types mixed evenly
+    static Employee[] employees(int size) {
+        Random random = new Random(SEED);
+        Employee[] employees = new Employee[size];
+        for (int i = 0; i < size; i++) {
+            employees[i] = employee(FIRST_ID + i, random);
+        }
+        return employees;
+    }
+
+    static Employee employee(int id, Random random) {
+        String name = "Employee" + id;
+        switch (id % 3) {
+            case 0:
+                return new SalariedEmployee(id, name, 30_000 + random.nextInt(90_000));
+            case 1:
+                return new HourlyEmployee(id, name, 15 + random.nextInt(60) + 0.25 * random.nextInt(4),
+                        random.nextInt(200));
+            default:
+                return new CommissionedEmployee(id, name, 0.01 * (1 + random.nextInt(20)),
+                        random.nextInt(500_000));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package payroll;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Total payroll: the original one-employee-at-a-time loop, the fork-join PayrollRun and the
+// columnar totals that recompute it, and the running aggregates calculateTotalPayroll reads
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class PayrollRunBenchmark {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Employee[] employees;
+    private PayrollRun payrollRun;
+    private ColumnarPayroll columns;
+    private PayrollAggregates aggregates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        employees = PayrollDataset.employees(size);
+        payrollRun = new PayrollRun();
+        columns = new ColumnarPayroll();
+        for (Employee employee : employees) {
+            columns.addEmployee(employee);
+        }
+        aggregates = new PayrollAggregates();
+        aggregates.reset(Arrays.asList(employees));
+    }
+
+    @Benchmark
+    public long sequential() {
+        long total = 0;
+        for (Employee employee : employees) {
+            long pay = employee.calculatePay();
+            total += pay - TaxCalculator.calculateTax(employee, pay);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public PayrollRunResult forkJoin() {
+        return payrollRun.run(employees);
+    }
+
+    @Benchmark
+    public PayrollTotals columnar() {
+        return columns.totals();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public PayrollTotals aggregates() {
+        return aggregates.totals();
+    }
+}
@@ -0,0 +1,99 @@
+package payroll;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Archiving a run's payslips with PayslipArchiver at the fastest and the default Deflater level,
+// and pulling one employee's stub back out of an archive. Payslips per second is size divided by
+// the archive score; the compression ratio is printed by the app with each run.
+// archiveIncremental is a run with a PayrollResultCache after 1% of the employees, spread at random,
+// changed since the previous run; archive is the same run rendering and compressing everything.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class PayslipArchiveBenchmark {
+    private static final int LOOKUPS = 1 << 12;
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"1", "6"})
+    public int level;
+
+    private Employee[] employees;
+    private File directory;
+    private File archiveFile;
+    private PayslipArchiver archiver;
+    private PayslipArchiver cachingArchiver;
+    private int[] changes;
+    private int nextChange;
+    private PayslipArchive archive;
+    private int[] lookupIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        employees = PayrollDataset.employees(size);
+        directory = Files.createTempDirectory("payroll-bench").toFile();
+        archiver = new PayslipArchiver(ForkJoinPool.commonPool(), level, null);
+        cachingArchiver = new PayslipArchiver(ForkJoinPool.commonPool(), level, new PayrollResultCache());
+        cachingArchiver.write(employees, new File(directory, "cached.archive"));
+        archiveFile = new File(directory, "run.archive");
+        archiver.write(employees, archiveFile);
+        archive = PayslipArchive.open(archiveFile);
+        Random random = new Random(PayrollDataset.SEED);
+        lookupIds = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookupIds[i] = PayrollDataset.FIRST_ID + random.nextInt(size);
+        }
+        changes = new int[size];
+        for (int i = 0; i < size; i++) {
+            changes[i] = random.nextInt(size);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        archive.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public PayslipArchiveResult archive() throws IOException {
+        return archiver.write(employees, new File(directory, "written.archive"));
+    }
+
+    @Benchmark
+    public PayslipArchiveResult archiveIncremental() throws IOException {
+        for (int i = 0; i < size / 100; i++) {
+            int changed = changes[nextChange];
+            nextChange = (nextChange + 1) % size;
+            Employee employee = employees[changed].copy();
+            employee.setName(employee.getName());
+            employees[changed] = employee;
+        }
+        return cachingArchiver.write(employees, new File(directory, "cached.archive"));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String payslip() throws IOException {
+        next = (next + 1) & (LOOKUPS - 1);
+        return archive.payslip(lookupIds[next]);
+    }
+}
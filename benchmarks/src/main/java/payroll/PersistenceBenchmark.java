@@ -0,0 +1,116 @@
+package payroll;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Loading and saving the whole employee store: the employees.bin snapshot (what PayrollSystem
+// loads at startup), journal replay, and the legacy CSV format, read line by line and with the
+// parallel EmployeeCsvLoader that converts it.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class PersistenceBenchmark {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private File directory;
+    private File snapshotFile;
+    private File csvFile;
+    private File journalSnapshotFile; // Has only a journal, holding one upsert per employee
+    private File writeFile;
+    private List<Employee> employees;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("payroll-bench").toFile();
+        employees = Arrays.asList(PayrollDataset.employees(size));
+        snapshotFile = new File(directory, "employees.bin");
+        BinaryEmployeeStore.write(snapshotFile, employees);
+        csvFile = new File(directory, "employees.txt");
+        EmployeeCsv.writeAll(csvFile, employees);
+        writeFile = new File(directory, "written.bin");
+
+        journalSnapshotFile = new File(directory, "journal-only.bin");
+        EmployeeJournal journal = new EmployeeJournal(journalSnapshotFile, Long.MAX_VALUE);
+        journal.replay(new DenseEmployeeIndex());
+        for (Employee employee : employees) {
+            journal.recordUpsert(employee);
+        }
+        journal.sync();
+        journal.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(directory.toPath())) {
+            files.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public EmployeeIndex loadSnapshot() throws IOException {
+        EmployeeIndex index = new DenseEmployeeIndex();
+        try (BinaryEmployeeStore store = BinaryEmployeeStore.open(snapshotFile)) {
+            for (int i = 0; i < store.size(); i++) {
+                index.put(store.read(i));
+            }
+        }
+        return index;
+    }
+
+    @Benchmark
+    public EmployeeIndex replayJournal() throws IOException {
+        EmployeeIndex index = new DenseEmployeeIndex();
+        EmployeeJournal journal = new EmployeeJournal(journalSnapshotFile, Long.MAX_VALUE);
+        journal.replay(index);
+        journal.close();
+        return index;
+    }
+
+    // The legacy load: one line at a time into a map, as PayrollSystem read employees.txt before the
+    // parallel loader
+    @Benchmark
+    public Map<Integer, Employee> loadCsv() throws IOException {
+        Map<Integer, Employee> loaded = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(csvFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Employee employee = EmployeeCsv.parse(line);
+                if (employee != null) {
+                    loaded.put(employee.getEmployeeId(), employee);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    @Benchmark
+    public Employee[] loadCsvParallel() throws IOException {
+        return new EmployeeCsvLoader().load(csvFile).getEmployees();
+    }
+
+    @Benchmark
+    public void writeSnapshot() throws IOException {
+        BinaryEmployeeStore.write(writeFile, employees);
+    }
+
+    @Benchmark
+    public void writeCsv() throws IOException {
+        EmployeeCsv.writeAll(writeFile, employees);
+    }
+}
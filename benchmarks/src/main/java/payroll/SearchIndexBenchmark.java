@@ -0,0 +1,89 @@
+package payroll;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Lookups by name prefix, type and salary range through EmployeeSearchIndex, against scanning every
+// employee for the same name prefix, and the cost of keeping the index in step with a rename
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SearchIndexBenchmark {
+    private static final int LOOKUPS = 1 << 12;
+    private static final int LIMIT = 100;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private Employee[] employees;
+    private EmployeeSearchIndex index;
+    private String[] prefixes;
+    private long[] salaries;
+    private int[] employeeNumbers;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        employees = PayrollDataset.employees(size);
+        index = new EmployeeSearchIndex();
+        for (Employee employee : employees) {
+            index.add(employee);
+        }
+        Random random = new Random(PayrollDataset.SEED);
+        prefixes = new String[LOOKUPS];
+        salaries = new long[LOOKUPS];
+        employeeNumbers = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            // All but the last digit of an id: about ten names match
+            String id = Integer.toString(PayrollDataset.FIRST_ID + random.nextInt(size));
+            prefixes[i] = "employee" + id.substring(0, id.length() - 1);
+            salaries[i] = Money.ofUnits(30_000 + random.nextInt(90_000));
+            employeeNumbers[i] = random.nextInt(size);
+        }
+    }
+
+    @Benchmark
+    public int[] namePrefix() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return index.byNamePrefix(prefixes[next], LIMIT);
+    }
+
+    @Benchmark
+    public int namePrefixScan() {
+        next = (next + 1) & (LOOKUPS - 1);
+        String prefix = prefixes[next];
+        int found = 0;
+        for (Employee employee : employees) {
+            if (employee.getName().regionMatches(true, 0, prefix, 0, prefix.length()) && ++found == LIMIT) break;
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int[] salaryRange() {
+        next = (next + 1) & (LOOKUPS - 1);
+        long from = salaries[next];
+        return index.byRate(EmployeeType.SALARIED, from, from + Money.ofUnits(500), LIMIT);
+    }
+
+    @Benchmark
+    public int[] typePage() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return index.byType(EmployeeType.HOURLY, PayrollDataset.FIRST_ID + employeeNumbers[next], LIMIT);
+    }
+
+    @Benchmark
+    public void rename() {
+        next = (next + 1) & (LOOKUPS - 1);
+        Employee employee = employees[employeeNumbers[next]];
+        Employee renamed = employee.copy();
+        renamed.setName(employee.getName() + "x");
+        index.replace(employee, renamed);
+        index.replace(renamed, employee);
+    }
+}
@@ -0,0 +1,78 @@
+package payroll;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Taxing a payroll's worth of incomes: the flat rate per type that TaxCalculator used to apply,
+// on doubles and on cents, against a TaxTable looked up one income at a time and in one batch call
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaxBenchmark {
+    private static final int INCOMES = 10_000;
+
+    // 1 is a flat table; 7 is a typical progressive schedule
+    @Param({"1", "7"})
+    public int brackets;
+
+    private TaxTable table;
+    private long flatRate;
+    private long[] incomes; // In cents
+    private long[] taxes;
+    private double[] doubleIncomes;
+    private double[] doubleTaxes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        table = brackets == 1
+                ? TaxTable.flat(0.2)
+                : new TaxTable(12_000,
+                new double[]{0, 11_000, 44_725, 95_375, 182_100, 231_250, 578_125},
+                new double[]{0.10, 0.12, 0.22, 0.24, 0.32, 0.35, 0.37});
+        flatRate = Money.rateOf(TaxCalculator.flatRateFor(EmployeeType.SALARIED));
+        Random random = new Random(PayrollDataset.SEED);
+        incomes = new long[INCOMES];
+        doubleIncomes = new double[INCOMES];
+        for (int i = 0; i < INCOMES; i++) {
+            incomes[i] = random.nextInt(40_000_000);
+            doubleIncomes[i] = Money.toUnits(incomes[i]);
+        }
+        taxes = new long[INCOMES];
+        doubleTaxes = new double[INCOMES];
+    }
+
+    @Benchmark
+    public double[] flatRateDouble() {
+        for (int i = 0; i < INCOMES; i++) {
+            doubleTaxes[i] = doubleIncomes[i] * TaxCalculator.flatRateFor(EmployeeType.SALARIED);
+        }
+        return doubleTaxes;
+    }
+
+    @Benchmark
+    public long[] flatRate() {
+        for (int i = 0; i < INCOMES; i++) {
+            taxes[i] = Money.applyRate(incomes[i], flatRate);
+        }
+        return taxes;
+    }
+
+    @Benchmark
+    public long[] tableSingle() {
+        for (int i = 0; i < INCOMES; i++) {
+            taxes[i] = table.tax(incomes[i]);
+        }
+        return taxes;
+    }
+
+    @Benchmark
+    public long[] tableBatch() {
+        table.tax(incomes, taxes, INCOMES);
+        return taxes;
+    }
+}
@@ -0,0 +1,239 @@
+package payroll;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+// BinaryEmployeeStore class for the fixed-layout employee snapshot (employees.bin).
+// The file is memory-mapped and records are decoded only when asked for, so opening it
+// costs nothing per employee. Layout:
+//   header  : magic, version, record count, reserved (4 ints)
+//   records : one 32-byte record per employee, sorted by id
+//             id (int), type (byte), 3 pad bytes, rate (double), count (int),
+//             name offset (int), name length (int), 4 pad bytes
+//   names   : UTF-8 name bytes, addressed by the offsets in the records
+// "rate" is the salary, hourly rate or commission rate and "count" is the hours worked or
+// total sales, depending on the employee type.
+class BinaryEmployeeStore implements Closeable {
+    private static final int MAGIC = 0x50415952; // "PAYR"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 32;
+    private static final int WRITE_BUFFER_SIZE = 2048 * RECORD_SIZE;
+
+    private static final int ID_OFFSET = 0;
+    private static final int TYPE_OFFSET = 4;
+    private static final int RATE_OFFSET = 8;
+    private static final int COUNT_OFFSET = 16;
+    private static final int NAME_OFFSET = 20;
+    private static final int NAME_LENGTH_OFFSET = 24;
+
+    private static final EmployeeType[] TYPES = EmployeeType.values();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final int namesStart;
+
+    private BinaryEmployeeStore(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an employee store file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported employee store version: " + buffer.getInt(4));
+        }
+        this.size = buffer.getInt(8);
+        this.namesStart = HEADER_SIZE + size * RECORD_SIZE;
+    }
+
+    public static BinaryEmployeeStore open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new BinaryEmployeeStore(channel, buffer);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int idAt(int index) {
+        return buffer.getInt(recordOffset(index) + ID_OFFSET);
+    }
+
+    // Decode the record at the given position
+    public Employee read(int index) {
+        int offset = recordOffset(index);
+        int id = buffer.getInt(offset + ID_OFFSET);
+        EmployeeType type = TYPES[buffer.get(offset + TYPE_OFFSET)];
+        double rate = buffer.getDouble(offset + RATE_OFFSET);
+        int count = buffer.getInt(offset + COUNT_OFFSET);
+
+        byte[] nameBytes = new byte[buffer.getInt(offset + NAME_LENGTH_OFFSET)];
+        buffer.get(namesStart + buffer.getInt(offset + NAME_OFFSET), nameBytes);
+        String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+        switch (type) {
+            case SALARIED:
+                return new SalariedEmployee(id, name, rate);
+            case HOURLY:
+                return new HourlyEmployee(id, name, rate, count);
+            case COMMISSIONED:
+                return new CommissionedEmployee(id, name, rate, count);
+        }
+        return null;
+    }
+
+    // Binary search on the sorted ids; returns null if the id is not in the file
+    public Employee find(int employeeId) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = idAt(mid);
+            if (id < employeeId) {
+                low = mid + 1;
+            } else if (id > employeeId) {
+                high = mid - 1;
+            } else {
+                return read(mid);
+            }
+        }
+        return null;
+    }
+
+    private static int recordOffset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Write employees, which must come in id order, to a new snapshot next to the target and move it
+    // into place. Records go to the file as the employees are reached and names to a side file that is
+    // appended after them, so only a buffer of each is held however many employees there are.
+    public static void write(File file, Collection<Employee> employees) throws IOException {
+        int count = employees.size();
+        long namesStart = HEADER_SIZE + (long) count * RECORD_SIZE;
+        File tempFile = new File(file.getPath() + ".tmp");
+        File namesFile = new File(file.getPath() + ".names.tmp");
+        try (FileChannel out = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             FileChannel names = FileChannel.open(namesFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0);
+            writeFully(out, header.flip());
+
+            ByteBuffer records = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            ByteBuffer nameBytes = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            long nameOffset = 0;
+            int written = 0;
+            long lastId = Long.MIN_VALUE;
+            for (Employee employee : employees) {
+                if (written == count) {
+                    throw new IOException("More than the " + count + " employees expected");
+                }
+                if (employee.getEmployeeId() <= lastId) {
+                    throw new IllegalArgumentException("Employees out of id order at " + employee.getEmployeeId());
+                }
+                lastId = employee.getEmployeeId();
+                byte[] name = employee.getName().getBytes(StandardCharsets.UTF_8);
+                if (namesStart + nameOffset + name.length > Integer.MAX_VALUE) {
+                    throw new IOException("Too many employees for a single store file");
+                }
+
+                if (!records.hasRemaining()) {
+                    writeFully(out, records.flip());
+                    records.clear();
+                }
+                putRecord(records, employee, (int) nameOffset, name.length);
+                if (nameBytes.remaining() < name.length) {
+                    writeFully(names, nameBytes.flip());
+                    nameBytes.clear();
+                }
+                if (name.length > nameBytes.capacity()) {
+                    writeFully(names, ByteBuffer.wrap(name));
+                } else {
+                    nameBytes.put(name);
+                }
+                nameOffset += name.length;
+                written++;
+            }
+            if (written != count) {
+                throw new IOException("Expected " + count + " employees but found " + written);
+            }
+            writeFully(out, records.flip());
+            writeFully(names, nameBytes.flip());
+
+            names.position(0);
+            for (long copied = 0; copied < nameOffset; ) {
+                copied += out.transferFrom(names, namesStart + copied, nameOffset - copied);
+            }
+            out.force(true);
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void putRecord(ByteBuffer records, Employee employee, int nameOffset, int nameLength) {
+        double rate = 0;
+        int count = 0;
+        if (employee instanceof SalariedEmployee) {
+            rate = ((SalariedEmployee) employee).getSalary();
+        } else if (employee instanceof HourlyEmployee) {
+            HourlyEmployee hourlyEmployee = (HourlyEmployee) employee;
+            rate = hourlyEmployee.getHourlyRate();
+            count = hourlyEmployee.getHoursWorked();
+        } else if (employee instanceof CommissionedEmployee) {
+            CommissionedEmployee commissionedEmployee = (CommissionedEmployee) employee;
+            rate = commissionedEmployee.getCommissionRate();
+            count = commissionedEmployee.getTotalSales();
+        }
+
+        int offset = records.position();
+        records.putInt(offset + ID_OFFSET, employee.getEmployeeId());
+        records.put(offset + TYPE_OFFSET, (byte) employee.getEmployeeType().ordinal());
+        records.putDouble(offset + RATE_OFFSET, rate);
+        records.putInt(offset + COUNT_OFFSET, count);
+        records.putInt(offset + NAME_OFFSET, nameOffset);
+        records.putInt(offset + NAME_LENGTH_OFFSET, nameLength);
+        records.position(offset + RECORD_SIZE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    // One-time conversion from the old employees.txt format. The file is parsed in parallel; where an
+    // id appears on several lines the last one wins, as it did when the file was read into a map.
+    public static CsvLoadResult convertFromCsv(File csvFile, File storeFile) throws IOException {
+        CsvLoadResult loaded = new EmployeeCsvLoader().load(csvFile);
+        Employee[] employees = loaded.getEmployees().clone();
+        Arrays.sort(employees, Comparator.comparingInt(Employee::getEmployeeId)); // Stable: file order within an id
+        int unique = 0;
+        for (int i = 0; i < employees.length; i++) {
+            if (i + 1 < employees.length && employees[i + 1].getEmployeeId() == employees[i].getEmployeeId()) continue;
+            employees[unique++] = employees[i];
+        }
+        write(storeFile, Arrays.asList(employees).subList(0, unique));
+        return new CsvLoadResult(Arrays.copyOf(employees, unique), unique, loaded.getMaxEmployeeId(),
+                loaded.getLines(), loaded.getBytes(), loaded.getWallNanos());
+    }
+}
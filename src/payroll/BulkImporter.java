@@ -0,0 +1,123 @@
+package payroll;
+
+import java.io.*;
+
+// BulkImporter class for applying a file of employee changes without the interactive menu.
+// One change per line:
+//   ADD,<name>,SALARIED,<salary>
+//   ADD,<name>,HOURLY,<hourly rate>,<hours worked>
+//   ADD,<name>,COMMISSIONED,<commission rate>,<total sales>
+//   UPDATE,<id>,<attribute>,<value>     (attribute as in PayrollSystem.updateDetails)
+//   REMOVE,<id>
+// Blank lines and lines starting with '#' are skipped. Values go through the same
+// changedValue/updateDetails rules as the Update Employee menu. Changes are applied in batches
+// and the import waits for each batch to be written to the journal.
+class BulkImporter {
+    static final int DEFAULT_BATCH_SIZE = 10_000;
+
+    private final PayrollSystem system;
+    private final int batchSize;
+
+    public BulkImporter(PayrollSystem system, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.system = system;
+        this.batchSize = batchSize;
+    }
+
+    public void run(File changeFile) throws IOException {
+        long start = System.nanoTime();
+        int lineNumber = 0;
+        int applied = 0;
+        int rejected = 0;
+        int batches = 0;
+        int inBatch = 0;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(changeFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) continue;
+
+                if (apply(line.split(","))) {
+                    applied++;
+                } else {
+                    rejected++;
+                    System.out.println("Rejected line " + lineNumber + ": " + line);
+                }
+
+                if (++inBatch == batchSize) {
+                    system.commitBatch();
+                    batches++;
+                    inBatch = 0;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                system.commitBatch(); // Whatever was applied before the failure is still persisted
+            } catch (IOException | RuntimeException commitFailure) {
+                e.addSuppressed(commitFailure); // Report the failure that stopped the import, not this one
+            }
+            throw e;
+        }
+        system.commitBatch();
+        if (inBatch > 0) {
+            batches++;
+        }
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        int rows = applied + rejected;
+        System.out.printf("Imported %d changes (%d rejected) in %d batches, %.2f s, %.0f rows/s%n",
+                applied, rejected, batches, seconds, seconds == 0 ? 0 : rows / seconds);
+    }
+
+    private boolean apply(String[] fields) throws IOException {
+        try {
+            switch (fields[0].trim().toUpperCase()) {
+                case "ADD":
+                    return add(fields);
+                case "UPDATE":
+                    if (fields.length != 4) return false;
+                    return system.batchUpdate(Integer.parseInt(fields[1].trim()), fields[2].trim(),
+                            PayrollSystem.changedValue(fields[3].trim()));
+                case "REMOVE":
+                    if (fields.length != 2) return false;
+                    return system.batchRemove(Integer.parseInt(fields[1].trim()));
+                default:
+                    return false;
+            }
+        } catch (IllegalArgumentException e) {
+            return false; // Bad id or employee type
+        }
+    }
+
+    private boolean add(String[] fields) throws IOException {
+        if (fields.length < 4) return false;
+        String name = fields[1].trim();
+        EmployeeType type = EmployeeType.valueOf(fields[2].trim().toUpperCase());
+        if (name.isEmpty() || Employee.nameProblem(name) != null) return false;
+
+        Object rate = PayrollSystem.changedValue(fields[3].trim());
+        if (!(rate instanceof Number)) return false;
+        if (type != EmployeeType.COMMISSIONED && !Money.isAmount(((Number) rate).doubleValue())) return false;
+
+        Employee employee;
+        if (type == EmployeeType.SALARIED) {
+            if (fields.length != 4) return false;
+            employee = new SalariedEmployee(EmployeeIdGenerator.generateId(), name, ((Number) rate).doubleValue());
+        } else {
+            if (fields.length != 5) return false;
+            Object count = PayrollSystem.changedValue(fields[4].trim());
+            if (!PayrollSystem.isWholeNumber(count)) return false;
+            if (type == EmployeeType.COMMISSIONED && !Money.isExactRate(((Number) rate).doubleValue())) return false;
+            int id = EmployeeIdGenerator.generateId();
+            employee = type == EmployeeType.HOURLY
+                    ? new HourlyEmployee(id, name, ((Number) rate).doubleValue(), ((Number) count).intValue())
+                    : new CommissionedEmployee(id, name, ((Number) rate).doubleValue(), ((Number) count).intValue());
+        }
+        if (!employee.isPayInRange()) return false;
+        system.batchAdd(employee);
+        return true;
+    }
+}
@@ -0,0 +1,287 @@
+package payroll;
+
+import java.util.Arrays;
+
+// ColumnarPayroll class for keeping employees as primitive columns, one block per EmployeeType.
+// There is no object per employee: an id maps to a slot in its type's block, and pay, tax and net
+// for a whole type are computed with plain loops over the columns. Payment method and details are
+// derived from the id and type, so they are not stored at all. All methods are synchronized, so
+// sessions can share one instance.
+class ColumnarPayroll {
+    private static final int NOT_PRESENT = -1;
+    private static final int SLOT_BITS = 28; // Low bits of a location hold the slot, high bits the type
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int INITIAL_LOCATIONS = 64;
+    private static final int MAX_LOCATIONS = Integer.MAX_VALUE - 8;
+
+    private final TypeColumns[] blocks = new TypeColumns[EmployeeType.values().length];
+    // Indexed by (id - locationBase), as DenseEmployeeIndex keeps its array, so ids far from 0 cost nothing
+    private int[] locations = new int[0];
+    private int locationBase;
+    private int size;
+
+    public ColumnarPayroll() {
+        for (EmployeeType type : EmployeeType.values()) {
+            blocks[type.ordinal()] = new TypeColumns(type);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int size(EmployeeType type) {
+        return blocks[type.ordinal()].size;
+    }
+
+    // Add an employee, or overwrite the columns of one that is already present. Pay out of range is
+    // refused here, as PayrollSystem does, so that totals() can multiply without overflow checks.
+    public synchronized void addEmployee(Employee employee) {
+        if (!employee.isPayInRange()) {
+            throw new IllegalArgumentException("Pay out of range for employee " + employee.getEmployeeId());
+        }
+        int id = employee.getEmployeeId();
+        int location = locationOf(id);
+        if (location != NOT_PRESENT && (location >>> SLOT_BITS) != employee.getEmployeeType().ordinal()) {
+            removeEmployee(id); // Type changed, so the employee moves to another block
+            location = NOT_PRESENT;
+        }
+
+        TypeColumns block = blocks[employee.getEmployeeType().ordinal()];
+        int slot;
+        if (location == NOT_PRESENT) {
+            slot = block.append(id);
+            ensureLocationCapacity(id);
+            locations[id - locationBase] = (employee.getEmployeeType().ordinal() << SLOT_BITS) | slot;
+            size++;
+        } else {
+            slot = location & SLOT_MASK;
+        }
+
+        block.names[slot] = employee.getName();
+        if (employee instanceof SalariedEmployee) {
+            block.rates[slot] = ((SalariedEmployee) employee).getSalaryCents();
+        } else if (employee instanceof HourlyEmployee) {
+            HourlyEmployee hourlyEmployee = (HourlyEmployee) employee;
+            block.rates[slot] = hourlyEmployee.getHourlyRateCents();
+            block.counts[slot] = hourlyEmployee.getHoursWorked();
+        } else if (employee instanceof CommissionedEmployee) {
+            CommissionedEmployee commissionedEmployee = (CommissionedEmployee) employee;
+            block.rates[slot] = commissionedEmployee.getCommissionRateMicros();
+            block.counts[slot] = commissionedEmployee.getTotalSales();
+        }
+    }
+
+    public synchronized boolean removeEmployee(int employeeId) {
+        int location = locationOf(employeeId);
+        if (location == NOT_PRESENT) return false;
+
+        TypeColumns block = blocks[location >>> SLOT_BITS];
+        int movedId = block.removeSlot(location & SLOT_MASK);
+        if (movedId != NOT_PRESENT) {
+            locations[movedId - locationBase] = location; // The last row of the block now sits in the freed slot
+        }
+        locations[employeeId - locationBase] = NOT_PRESENT;
+        size--;
+        return true;
+    }
+
+    // Same attributes and validation rules as PayrollSystem.updateDetails
+    public synchronized boolean updateDetails(int employeeId, String attribute, Object newValue) {
+        int location = locationOf(employeeId);
+        if (location == NOT_PRESENT || newValue == null) return false;
+
+        EmployeeType type = EmployeeType.values()[location >>> SLOT_BITS];
+        TypeColumns block = blocks[type.ordinal()];
+        int slot = location & SLOT_MASK;
+        boolean number = newValue instanceof Number;
+
+        switch (attribute) {
+            case "name":
+                if (!(newValue instanceof String)) return false;
+                block.names[slot] = (String) newValue;
+                return true;
+            case "salary":
+                if (!number || type != EmployeeType.SALARIED || !Money.isAmount(((Number) newValue).doubleValue())) return false;
+                block.rates[slot] = Money.ofUnits(((Number) newValue).doubleValue());
+                return true;
+            case "hourlyRate":
+                if (!number || type != EmployeeType.HOURLY || !Money.isAmount(((Number) newValue).doubleValue())) return false;
+                return block.setIfPayInRange(slot, Money.ofUnits(((Number) newValue).doubleValue()), block.counts[slot]);
+            case "hoursWorked":
+                if (!number || type != EmployeeType.HOURLY) return false;
+                return block.setIfPayInRange(slot, block.rates[slot], ((Number) newValue).intValue());
+            case "commissionRate":
+                if (!number || type != EmployeeType.COMMISSIONED) return false;
+                return block.setIfPayInRange(slot, Money.rateOf(((Number) newValue).doubleValue()), block.counts[slot]);
+            case "totalSales":
+                if (!number || type != EmployeeType.COMMISSIONED) return false;
+                return block.setIfPayInRange(slot, block.rates[slot], ((Number) newValue).intValue());
+            default:
+                return false;
+        }
+    }
+
+    // Rebuild an Employee object from its columns, or null if the id is not present
+    public synchronized Employee getEmployee(int employeeId) {
+        int location = locationOf(employeeId);
+        if (location == NOT_PRESENT) return null;
+
+        TypeColumns block = blocks[location >>> SLOT_BITS];
+        int slot = location & SLOT_MASK;
+        switch (block.type) {
+            case SALARIED:
+                return new SalariedEmployee(employeeId, block.names[slot], Money.toUnits(block.rates[slot]));
+            case HOURLY:
+                return new HourlyEmployee(employeeId, block.names[slot], Money.toUnits(block.rates[slot]),
+                        block.counts[slot]);
+            case COMMISSIONED:
+                return new CommissionedEmployee(employeeId, block.names[slot], Money.toRate(block.rates[slot]),
+                        block.counts[slot]);
+        }
+        return null;
+    }
+
+    // Gross, tax and net for every employee of one type
+    public synchronized PayrollTotals totals(EmployeeType type) {
+        return blocks[type.ordinal()].totals();
+    }
+
+    public synchronized PayrollTotals totals() {
+        PayrollTotals totals = new PayrollTotals();
+        for (TypeColumns block : blocks) {
+            totals.add(block.totals());
+        }
+        return totals;
+    }
+
+    private int locationOf(int employeeId) {
+        long index = (long) employeeId - locationBase;
+        if (index < 0 || index >= locations.length) return NOT_PRESENT;
+        return locations[(int) index];
+    }
+
+    // Grow the locations upwards, doubling, or lower locationBase so that the id has an entry
+    private void ensureLocationCapacity(int employeeId) {
+        if (locations.length == 0) {
+            locations = new int[INITIAL_LOCATIONS];
+            Arrays.fill(locations, NOT_PRESENT);
+            locationBase = employeeId;
+            return;
+        }
+        long index = (long) employeeId - locationBase;
+        if (index >= 0 && index < locations.length) return;
+
+        long newBase = Math.min(locationBase, employeeId);
+        long span = Math.max((long) locationBase + locations.length, employeeId + 1L) - newBase;
+        long capacity = index < 0 ? span : Math.max(span, 2L * locations.length);
+        if (span > MAX_LOCATIONS) {
+            throw new IllegalArgumentException("Employee id too far from " + locationBase + " for the columns");
+        }
+        int[] grown = new int[(int) Math.min(capacity, MAX_LOCATIONS)];
+        Arrays.fill(grown, NOT_PRESENT);
+        System.arraycopy(locations, 0, grown, (int) (locationBase - newBase), locations.length);
+        locations = grown;
+        locationBase = (int) newBase;
+    }
+
+    // Columns for one employee type. "rates" holds the salary or hourly rate in cents, or the
+    // commission rate in millionths, and "counts" the hours worked or total sales, the same split
+    // BinaryEmployeeStore uses.
+    private static class TypeColumns {
+        private static final int INITIAL_CAPACITY = 16;
+
+        final EmployeeType type;
+        int[] ids = new int[INITIAL_CAPACITY];
+        String[] names = new String[INITIAL_CAPACITY];
+        long[] rates = new long[INITIAL_CAPACITY];
+        int[] counts = new int[INITIAL_CAPACITY];
+        long[] pay = new long[INITIAL_CAPACITY]; // Scratch space for totals()
+        long[] tax = new long[INITIAL_CAPACITY];
+        int size;
+
+        TypeColumns(EmployeeType type) {
+            this.type = type;
+        }
+
+        int append(int id) {
+            if (size == ids.length) {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                names = Arrays.copyOf(names, capacity);
+                rates = Arrays.copyOf(rates, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                pay = new long[capacity];
+                tax = new long[capacity];
+            }
+            ids[size] = id;
+            rates[size] = 0;
+            counts[size] = 0;
+            return size++;
+        }
+
+        // Move the last row into the slot; returns the id of the moved row or NOT_PRESENT
+        int removeSlot(int slot) {
+            int last = --size;
+            int movedId = NOT_PRESENT;
+            if (slot != last) {
+                ids[slot] = ids[last];
+                names[slot] = names[last];
+                rates[slot] = rates[last];
+                counts[slot] = counts[last];
+                movedId = ids[slot];
+            }
+            names[last] = null;
+            return movedId;
+        }
+
+        // Store the rate and count only if the pay they give fits, as Employee.isPayInRange() decides
+        boolean setIfPayInRange(int slot, long rate, int count) {
+            boolean inRange = type == EmployeeType.HOURLY
+                    ? Money.isAmountTimes(rate, count)
+                    : Money.isAmountAtRate(count * Money.CENTS_PER_UNIT, rate);
+            if (!inRange) return false;
+            rates[slot] = rate;
+            counts[slot] = count;
+            return true;
+        }
+
+        PayrollTotals totals() {
+            int n = size;
+            long[] pay = this.pay;
+            long[] rates = this.rates;
+            int[] counts = this.counts;
+
+            if (type == EmployeeType.SALARIED) {
+                System.arraycopy(rates, 0, pay, 0, n);
+            } else if (type == EmployeeType.HOURLY) {
+                // Element-wise pass with no branches or calls, which C2 turns into SIMD code. Cannot
+                // overflow: addEmployee() and updateDetails() only store pay that fits (isPayInRange)
+                for (int i = 0; i < n; i++) {
+                    pay[i] = rates[i] * counts[i];
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    pay[i] = Money.applyRate(counts[i] * Money.CENTS_PER_UNIT, rates[i]);
+                }
+            }
+
+            long[] tax = this.tax;
+            TaxCalculator.calculateTaxes(type, pay, tax, n); // Brackets are progressive, so each pay is taxed on its own
+
+            long gross = 0;
+            long totalTax = 0;
+            for (int i = 0; i < n; i++) {
+                gross += pay[i];
+                totalTax += tax[i];
+            }
+
+            PayrollTotals totals = new PayrollTotals();
+            totals.gross = gross;
+            totals.tax = totalTax;
+            totals.net = gross - totalTax;
+            totals.employees = n;
+            return totals;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package payroll;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// CredentialStore class for salted, slow-hashed user passwords.
+// user_credentials.txt is append-only: registering a user appends one line
+//   <username>,pbkdf2-sha256,<iterations>,<salt base64>,<hash base64>
+// instead of rewriting the file. Files from before hashing hold "<username>,<password>" lines;
+// those are hashed once at load and the file is rewritten without the plain passwords.
+class CredentialStore {
+    private static final String ALGORITHM = "pbkdf2-sha256";
+    private static final int ITERATIONS = 210_000;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final File file;
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentHashMap<String, PasswordHash> hashes = new ConcurrentHashMap<>();
+
+    public CredentialStore(File file) {
+        this.file = file;
+    }
+
+    public void load() throws IOException {
+        if (!file.exists()) return;
+
+        boolean hadPlainPasswords = false;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                int comma = line.indexOf(',');
+                if (parts.length == 5 && parts[1].equals(ALGORITHM)) {
+                    hashes.put(parts[0], new PasswordHash(Integer.parseInt(parts[2]),
+                            Base64.getDecoder().decode(parts[3]), Base64.getDecoder().decode(parts[4])));
+                } else if (comma > 0) {
+                    // username, password; the password is everything after the first comma, commas included
+                    hashes.put(line.substring(0, comma), hash(line.substring(comma + 1)));
+                    hadPlainPasswords = true;
+                }
+            }
+        }
+        if (hadPlainPasswords) {
+            rewrite();
+        }
+    }
+
+    public boolean contains(String username) {
+        return hashes.containsKey(username);
+    }
+
+    // Why a username cannot be stored, or null if it can. A comma would shift the fields of its line,
+    // which load() would then take for a plain-text password; a line break would start a line of its own.
+    static String usernameProblem(String username) {
+        if (username.isBlank()) return "must not be blank";
+        for (int i = 0; i < username.length(); i++) {
+            char c = username.charAt(i);
+            if (c == ',') return "must not contain a comma";
+            if (Character.isISOControl(c)) return "must not contain control characters";
+        }
+        return null;
+    }
+
+    // Add a user; returns false if the username is already taken. The user can log in only once the
+    // line is in the file, so a failed write leaves no account that would be gone after a restart.
+    public boolean register(String username, String password) throws IOException {
+        String problem = usernameProblem(username);
+        if (problem != null) {
+            throw new IllegalArgumentException("Username " + problem);
+        }
+        if (hashes.containsKey(username)) return false;
+        PasswordHash hash = hash(password); // Slow, so not while holding the file
+        synchronized (this) {
+            if (hashes.containsKey(username)) return false;
+            append(username, hash);
+            hashes.put(username, hash);
+        }
+        return true;
+    }
+
+    // Hash the password with the user's salt and compare in constant time
+    public boolean verify(String username, String password) {
+        PasswordHash stored = hashes.get(username);
+        if (stored == null) {
+            hash(password); // Same cost as a real check, so timing does not reveal unknown usernames
+            return false;
+        }
+        byte[] candidate = pbkdf2(password, stored.salt, stored.iterations);
+        return MessageDigest.isEqual(candidate, stored.hash);
+    }
+
+    private PasswordHash hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        return new PasswordHash(ITERATIONS, salt, pbkdf2(password, salt, ITERATIONS));
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2WithHmacSHA256 is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private synchronized void append(String username, PasswordHash hash) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true))) {
+            writer.write(format(username, hash));
+            writer.newLine();
+        }
+    }
+
+    private synchronized void rewrite() throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile))) {
+            for (Map.Entry<String, PasswordHash> entry : hashes.entrySet()) {
+                writer.write(format(entry.getKey(), entry.getValue()));
+                writer.newLine();
+            }
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String format(String username, PasswordHash hash) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        return username + "," + ALGORITHM + "," + hash.iterations + ","
+                + encoder.encodeToString(hash.salt) + "," + encoder.encodeToString(hash.hash);
+    }
+
+    private static final class PasswordHash {
+        final int iterations;
+        final byte[] salt;
+        final byte[] hash;
+
+        PasswordHash(int iterations, byte[] salt, byte[] hash) {
+            this.iterations = iterations;
+            this.salt = salt;
+            this.hash = hash;
+        }
+    }
+}
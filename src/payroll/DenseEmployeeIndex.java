@@ -0,0 +1,232 @@
+package payroll;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// DenseEmployeeIndex class for holding every employee in memory and looking them up by their int id
+// without boxing. EmployeeIdGenerator hands out dense, increasing ids, so employees are kept in an
+// array indexed by (id - baseId). A removed employee leaves an empty slot (tombstone) behind;
+// iteration skips those and always runs in id order.
+// Reads never lock. Writers to different ids may run at the same time as long as no one grows the
+// array meanwhile: callers that write concurrently call reserve() under their own exclusive lock
+// first, so that put() never has to grow.
+class DenseEmployeeIndex implements EmployeeIndex {
+    private static final int DEFAULT_BASE_ID = 101; // First id EmployeeIdGenerator hands out
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Employee[].class);
+
+    // The array and the id of its first slot change together, so readers always see a matching pair
+    private volatile Table table = new Table(new Employee[INITIAL_CAPACITY], DEFAULT_BASE_ID);
+    private final AtomicInteger endSlot = new AtomicInteger(); // One past the highest slot ever filled
+    private final AtomicInteger size = new AtomicInteger();
+    private final Collection<Employee> values = new Values();
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    @Override
+    public Employee get(int employeeId) {
+        Table table = this.table;
+        int slot = employeeId - table.baseId;
+        if (slot < 0 || slot >= table.slots.length) return null;
+        return (Employee) SLOT.getAcquire(table.slots, slot);
+    }
+
+    public boolean containsKey(int employeeId) {
+        return get(employeeId) != null;
+    }
+
+    // Whether put() for this id can run without growing the array
+    @Override
+    public boolean fits(int employeeId) {
+        Table table = this.table;
+        int slot = employeeId - table.baseId;
+        return slot >= 0 && slot < table.slots.length;
+    }
+
+    // Grow or rebase the array so that the id fits; must not run alongside other writers
+    @Override
+    public void reserve(int employeeId) {
+        if (employeeId < table.baseId) {
+            rebase(employeeId);
+        }
+        int slot = employeeId - table.baseId;
+        if (slot >= table.slots.length) {
+            grow(slot);
+        }
+    }
+
+    @Override
+    public Employee put(Employee employee) {
+        int employeeId = employee.getEmployeeId();
+        if (!fits(employeeId)) {
+            reserve(employeeId);
+        }
+        Table table = this.table;
+        int slot = employeeId - table.baseId;
+
+        Employee previous = (Employee) SLOT.getAndSetRelease(table.slots, slot, employee);
+        if (previous == null) {
+            size.incrementAndGet();
+        }
+        endSlot.accumulateAndGet(slot + 1, Math::max);
+        return previous;
+    }
+
+    @Override
+    public Employee remove(int employeeId) {
+        Table table = this.table;
+        int slot = employeeId - table.baseId;
+        if (slot < 0 || slot >= table.slots.length) return null;
+
+        Employee previous = (Employee) SLOT.getAndSetRelease(table.slots, slot, (Employee) null);
+        if (previous != null) {
+            size.decrementAndGet();
+        }
+        return previous;
+    }
+
+    @Override
+    public Collection<Employee> values() {
+        return values;
+    }
+
+    // Employees in id order; consistent only if no writer runs meanwhile
+    public Employee[] toArray() {
+        Employee[] slots = table.slots;
+        int end = endSlot.get();
+        Employee[] result = new Employee[size.get()];
+        int count = 0;
+        for (int slot = 0; slot < end && count < result.length; slot++) {
+            Employee employee = (Employee) SLOT.getAcquire(slots, slot);
+            if (employee != null) {
+                result[count++] = employee;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    // The references are enough, since stored employees are never changed in place
+    @Override
+    public Collection<Employee> capture() {
+        return Arrays.asList(toArray());
+    }
+
+    // A page costs its own size plus the tombstones skipped, however many employees there are
+    @Override
+    public EmployeePage page(int cursor, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + limit);
+        }
+        Table table = this.table;
+        Employee[] slots = table.slots;
+        int end = Math.min(endSlot.get(), slots.length);
+        Employee[] found = new Employee[Math.min(limit, 1024)];
+        int count = 0;
+        boolean more = false;
+        for (long slot = Math.max(0, (long) cursor + 1 - table.baseId); slot < end; slot++) {
+            Employee employee = (Employee) SLOT.getAcquire(slots, (int) slot);
+            if (employee == null) continue;
+            if (count == limit) {
+                more = true;
+                break;
+            }
+            if (count == found.length) {
+                found = Arrays.copyOf(found, (int) Math.min(limit, 2L * found.length));
+            }
+            found[count++] = employee;
+        }
+        return new EmployeePage(Arrays.asList(Arrays.copyOf(found, count)), more);
+    }
+
+    private void grow(int slot) {
+        Table table = this.table;
+        long capacity = Math.max((long) slot + 1, (long) table.slots.length * 2);
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Employee id too far from " + table.baseId + " for the index");
+        }
+        this.table = new Table(Arrays.copyOf(table.slots, (int) capacity), table.baseId);
+    }
+
+    // Lower baseId so that a smaller id fits; only happens for ids below 101 loaded from files
+    private void rebase(int newBaseId) {
+        Table table = this.table;
+        int shift = table.baseId - newBaseId;
+        int end = endSlot.get();
+        long capacity = Math.max((long) end + shift, table.slots.length);
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Employee id too far from " + table.baseId + " for the index");
+        }
+        Employee[] shifted = new Employee[(int) capacity];
+        System.arraycopy(table.slots, 0, shifted, shift, end);
+        if (end > 0) {
+            endSlot.set(end + shift);
+        }
+        this.table = new Table(shifted, newBaseId);
+    }
+
+    private static final class Table {
+        final Employee[] slots;
+        final int baseId;
+
+        Table(Employee[] slots, int baseId) {
+            this.slots = slots;
+            this.baseId = baseId;
+        }
+    }
+
+    private class Values extends AbstractCollection<Employee> {
+        @Override
+        public Iterator<Employee> iterator() {
+            return new Iterator<>() {
+                private final Employee[] slots = table.slots;
+                private int next;
+                private Employee nextEmployee = advance();
+
+                // Find the next live slot, skipping tombstones
+                private Employee advance() {
+                    int end = Math.min(endSlot.get(), slots.length);
+                    while (next < end) {
+                        Employee employee = (Employee) SLOT.getAcquire(slots, next++);
+                        if (employee != null) return employee;
+                    }
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return nextEmployee != null;
+                }
+
+                @Override
+                public Employee next() {
+                    if (nextEmployee == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Employee employee = nextEmployee;
+                    nextEmployee = advance();
+                    return employee;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size.get();
+        }
+    }
+}
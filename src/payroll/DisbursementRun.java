@@ -0,0 +1,389 @@
+package payroll;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// DisbursementRun class for turning a payroll run into payment instructions: one fixed-width batch
+// file per bank ("Bank <code>" payment methods) and a register for the checks ("Check").
+// Employees with another payment method, no account or check number, or no net pay are left out
+// and counted. The employees are cut into partitions that are formatted in parallel on a fork-join
+// pool, each into one buffer per output file; the caller appends the buffers to the files in
+// partition order as they finish, so the files come out in id order and only a few partitions are
+// in memory at once. If anything fails the files written so far are deleted, so no bank ever sees
+// half a batch.
+//
+// Every record is RECORD_LENGTH ASCII characters and a newline; text is left-aligned and padded with
+// spaces (characters outside ASCII become '?'), numbers are right-aligned and padded with zeros,
+// amounts are net pay in cents.
+//   H  header   : 'H', bank code or "CHECKS" (10), pay date yyyyMMdd (8), created yyyyMMddHHmmss (14)
+//   D  payment  : 'D', employee id (10), account (20), name (30), amount (15)
+//   C  check    : 'C', check number (20), employee id (10), payee (30), amount (15)
+//   T  trailer  : 'T', number of payments (10), total amount (18)
+class DisbursementRun {
+    static final int RECORD_LENGTH = 80;
+    static final String CHECK_REGISTER = "CHECKS";
+    private static final String BANK_PREFIX = "Bank ";
+    private static final String CHECK_METHOD = "Check";
+    private static final String ACCOUNT_PREFIX = "Account: ";
+    private static final String CHECK_NUMBER_PREFIX = "Check Number: ";
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter CREATED = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final ForkJoinPool pool;
+    private final int partitionSize;
+
+    public DisbursementRun() {
+        this(ForkJoinPool.commonPool(), PayrollRun.DEFAULT_PARTITION_SIZE);
+    }
+
+    public DisbursementRun(ForkJoinPool pool, int partitionSize) {
+        if (partitionSize <= 0) {
+            throw new IllegalArgumentException("Partition size must be positive");
+        }
+        this.pool = pool;
+        this.partitionSize = partitionSize;
+    }
+
+    // Write the payment files for the employees, sorted by id, into the directory
+    public DisbursementResult run(Employee[] employees, LocalDate payDate, File directory) throws IOException {
+        return run(Arrays.asList(employees), payDate, directory);
+    }
+
+    // Write the payment files for the employees, sorted by id, into the directory. They are taken from
+    // the collection a partition at a time, as the partitions are handed to the pool, so one that reads
+    // them from a file as it goes (LazyEmployeeIndex.capture) is never held in memory as a whole.
+    public DisbursementResult run(Collection<Employee> employees, LocalDate payDate, File directory) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(directory.toPath());
+        byte[] header = new byte[RECORD_LENGTH + 1];
+        String created = LocalDateTime.now().format(CREATED);
+        Map<String, Output> outputs = new TreeMap<>();
+        int skipped = 0;
+        int window = 2 * pool.getParallelism(); // Partitions formatted ahead of the one being written
+        Deque<ForkJoinTask<Partition>> inFlight = new ArrayDeque<>();
+        Iterator<Employee> source = employees.iterator();
+        int remaining = employees.size();
+        try {
+            while (remaining > 0 || !inFlight.isEmpty()) {
+                while (inFlight.size() < window && remaining > 0) {
+                    Employee[] partitionEmployees = new Employee[Math.min(partitionSize, remaining)];
+                    for (int i = 0; i < partitionEmployees.length; i++) {
+                        partitionEmployees[i] = source.next();
+                    }
+                    remaining -= partitionEmployees.length;
+                    inFlight.add(pool.submit(() -> format(partitionEmployees)));
+                }
+                Partition partition = inFlight.removeFirst().get();
+                skipped += partition.skipped;
+                for (Map.Entry<String, Chunk> entry : partition.chunks.entrySet()) {
+                    Output output = outputs.get(entry.getKey());
+                    if (output == null) {
+                        output = Output.open(directory, entry.getKey());
+                        outputs.put(entry.getKey(), output);
+                        Arrays.fill(header, (byte) ' ');
+                        header[0] = 'H';
+                        putText(header, 1, entry.getKey(), 10);
+                        putText(header, 11, payDate.format(DATE), 8);
+                        putText(header, 19, created, 14);
+                        header[RECORD_LENGTH] = '\n';
+                        output.write(header, header.length);
+                    }
+                    output.add(entry.getValue());
+                }
+            }
+            List<PaymentFile> files = new ArrayList<>(outputs.size());
+            for (Output output : outputs.values()) {
+                output.finish();
+                files.add(new PaymentFile(output.code, output.file, output.payments, output.total));
+            }
+            return new DisbursementResult(files, skipped, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw abandon(outputs, new IOException("Interrupted writing payment files", e));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            String reason = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+            throw abandon(outputs, new IOException("Error formatting payments: " + reason, cause));
+        } catch (IOException | RuntimeException e) {
+            throw abandon(outputs, e);
+        } finally {
+            inFlight.forEach(task -> task.cancel(false));
+        }
+    }
+
+    // Records for one partition, one buffer per output file
+    private Partition format(Employee[] employees) {
+        Partition partition = new Partition();
+        long[] pay = new long[employees.length];
+        long[] tax = new long[employees.length];
+        for (int i = 0; i < employees.length; i++) {
+            pay[i] = employees[i].calculatePay();
+        }
+        TaxCalculator.calculateTaxes(employees, 0, pay, tax, employees.length);
+
+        Map<String, Chunk> byMethod = new HashMap<>(); // Payment method to its chunk, so the code is worked out once
+        for (int i = 0; i < employees.length; i++) {
+            Employee employee = employees[i];
+            long net = pay[i] - tax[i];
+            String method = employee.getPaymentMethod();
+            Chunk chunk = method == null ? null : byMethod.get(method);
+            if (chunk == null && method != null && !byMethod.containsKey(method)) {
+                String code = codeOf(method);
+                chunk = code == null ? null : partition.chunks.computeIfAbsent(code, key -> new Chunk(key.equals(CHECK_REGISTER)));
+                byMethod.put(method, chunk);
+            }
+            String details = employee.getPaymentDetails();
+            int reference = chunk == null ? -1 : detailStart(details, chunk.check ? CHECK_NUMBER_PREFIX : ACCOUNT_PREFIX);
+            if (reference < 0 || net <= 0) {
+                partition.skipped++;
+                continue;
+            }
+
+            byte[] record = chunk.next();
+            int offset = chunk.length - RECORD_LENGTH - 1;
+            if (chunk.check) {
+                record[offset] = 'C';
+                putText(record, offset + 1, details, reference, 20);
+                putNumber(record, offset + 21, employee.getEmployeeId(), 10);
+            } else {
+                record[offset] = 'D';
+                putNumber(record, offset + 1, employee.getEmployeeId(), 10);
+                putText(record, offset + 11, details, reference, 20);
+            }
+            putText(record, offset + 31, employee.getName(), 0, 30);
+            putNumber(record, offset + 61, net, 15);
+            chunk.payments++;
+            chunk.total += net;
+        }
+        return partition;
+    }
+
+    // Output code for a payment method: the bank code, CHECK_REGISTER, or null for anything else
+    private static String codeOf(String method) {
+        if (method.startsWith(BANK_PREFIX)) {
+            String code = method.substring(BANK_PREFIX.length()).trim();
+            return code.isEmpty() ? null : code;
+        }
+        return method.equals(CHECK_METHOD) ? CHECK_REGISTER : null;
+    }
+
+    // Where the account or check number starts in payment details such as "Account: 10148945665",
+    // or -1 if there is none
+    private static int detailStart(String details, String prefix) {
+        if (details == null || !details.startsWith(prefix)) return -1;
+        int start = prefix.length();
+        while (start < details.length() && details.charAt(start) == ' ') {
+            start++;
+        }
+        return start < details.length() ? start : -1;
+    }
+
+    static void putText(byte[] record, int offset, String text, int width) {
+        putText(record, offset, text, 0, width);
+    }
+
+    // Characters of text from start, cut or padded to width
+    static void putText(byte[] record, int offset, String text, int start, int width) {
+        int length = text == null ? 0 : Math.max(0, Math.min(text.length() - start, width));
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(start + i);
+            record[offset + i] = c >= ' ' && c < 127 ? (byte) c : (byte) '?';
+        }
+        Arrays.fill(record, offset + length, offset + width, (byte) ' ');
+    }
+
+    static void putNumber(byte[] record, int offset, long value, int width) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative amount in a payment file: " + value);
+        }
+        for (int i = offset + width - 1; i >= offset; i--) {
+            record[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        if (value != 0) {
+            throw new IllegalArgumentException("Amount too large for a payment file field of " + width + " digits");
+        }
+    }
+
+    private static IOException abandon(Map<String, Output> outputs, Exception cause) {
+        IOException error = cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+        for (Output output : outputs.values()) {
+            try {
+                output.channel.close();
+                Files.deleteIfExists(output.file.toPath());
+            } catch (IOException e) {
+                error.addSuppressed(e);
+            }
+        }
+        return error;
+    }
+
+    private static final class Partition {
+        final Map<String, Chunk> chunks = new TreeMap<>();
+        int skipped;
+    }
+
+    // Formatted records for one output file from one partition
+    private static final class Chunk {
+        final boolean check; // Check register records rather than bank payments
+        byte[] bytes = new byte[64 * (RECORD_LENGTH + 1)];
+        int length;
+        int payments;
+        long total;
+
+        Chunk(boolean check) {
+            this.check = check;
+        }
+
+        // Room for one more record, ending in its newline; returns the buffer to write it into
+        byte[] next() {
+            if (length + RECORD_LENGTH + 1 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            length += RECORD_LENGTH + 1;
+            Arrays.fill(bytes, length - RECORD_LENGTH - 1, length - 1, (byte) ' ');
+            bytes[length - 1] = '\n';
+            return bytes;
+        }
+    }
+
+    private static final class Output {
+        final String code;
+        final File file;
+        final FileChannel channel;
+        int payments;
+        long total;
+
+        private Output(String code, File file, FileChannel channel) {
+            this.code = code;
+            this.file = file;
+            this.channel = channel;
+        }
+
+        static Output open(File directory, String code) throws IOException {
+            File file = new File(directory, fileName(code));
+            return new Output(code, file, FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+        }
+
+        static String fileName(String code) {
+            return code.equals(CHECK_REGISTER) ? "check-register.txt"
+                    : "bank-" + code.toLowerCase().replaceAll("[^a-z0-9]+", "_") + ".txt";
+        }
+
+        void add(Chunk chunk) throws IOException {
+            write(chunk.bytes, chunk.length);
+            payments += chunk.payments;
+            total = Math.addExact(total, chunk.total);
+        }
+
+        void write(byte[] bytes, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        void finish() throws IOException {
+            byte[] trailer = new byte[RECORD_LENGTH + 1];
+            Arrays.fill(trailer, (byte) ' ');
+            trailer[0] = 'T';
+            putNumber(trailer, 1, payments, 10);
+            putNumber(trailer, 11, total, 18);
+            trailer[RECORD_LENGTH] = '\n';
+            write(trailer, trailer.length);
+            channel.force(false); // A payment file handed to a bank must be complete on disk
+            channel.close();
+        }
+    }
+}
+
+// One written payment file: a bank's batch or the check register
+class PaymentFile {
+    private final String code;
+    private final File file;
+    private final int payments;
+    private final long total;
+
+    PaymentFile(String code, File file, int payments, long total) {
+        this.code = code;
+        this.file = file;
+        this.payments = payments;
+        this.total = total;
+    }
+
+    // Bank code, or DisbursementRun.CHECK_REGISTER
+    public String getCode() {
+        return code;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getPayments() {
+        return payments;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+}
+
+// Result of a disbursement run: the files written and throughput
+class DisbursementResult {
+    private final List<PaymentFile> files;
+    private final int skipped;
+    private final long wallNanos;
+
+    DisbursementResult(List<PaymentFile> files, int skipped, long wallNanos) {
+        this.files = files;
+        this.skipped = skipped;
+        this.wallNanos = wallNanos;
+    }
+
+    public List<PaymentFile> getFiles() {
+        return files;
+    }
+
+    // Employees left out for want of a payment method, account or net pay
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public int getPayments() {
+        int payments = 0;
+        for (PaymentFile file : files) {
+            payments += file.getPayments();
+        }
+        return payments;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public double getPaymentsPerSecond() {
+        return wallNanos == 0 ? 0 : getPayments() * 1_000_000_000.0 / wallNanos;
+    }
+}
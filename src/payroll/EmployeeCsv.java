@@ -0,0 +1,57 @@
+package payroll;
+
+import java.io.*;
+import java.util.Collection;
+
+// EmployeeCsv class for converting employees to and from the employees.txt line format
+class EmployeeCsv {
+
+    static void writeAll(File file, Collection<Employee> employees) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            for (Employee employee : employees) {
+                writer.write(format(employee));
+                writer.newLine();
+            }
+        }
+    }
+
+    // Format employee data into a CSV-like structure (ID, name, type, salary, etc.)
+    static String format(Employee employee) {
+        return employee.getEmployeeId() + "," + employee.getName() + "," + employee.getEmployeeType()
+                + "," + details(employee); // Employee-specific data
+    }
+
+    private static String details(Employee employee) {
+        if (employee instanceof SalariedEmployee) {
+            return String.valueOf(((SalariedEmployee) employee).getSalary());
+        } else if (employee instanceof HourlyEmployee) {
+            HourlyEmployee hourlyEmployee = (HourlyEmployee) employee;
+            return hourlyEmployee.getHourlyRate() + "," + hourlyEmployee.getHoursWorked();
+        } else if (employee instanceof CommissionedEmployee) {
+            CommissionedEmployee commissionedEmployee = (CommissionedEmployee) employee;
+            return commissionedEmployee.getCommissionRate() + "," + commissionedEmployee.getTotalSales();
+        }
+        return "";
+    }
+
+    // Parse one line back into an employee, or null if the line is not a full record
+    static Employee parse(String line) {
+        String[] parts = line.split(",");
+        if (parts.length <= 2) return null;
+
+        int id = Integer.parseInt(parts[0]);
+        String name = parts[1];
+        EmployeeType type = EmployeeType.valueOf(parts[2]);
+
+        // Create employee objects based on their type
+        switch (type) {
+            case SALARIED:
+                return new SalariedEmployee(id, name, Double.parseDouble(parts[3]));
+            case HOURLY:
+                return new HourlyEmployee(id, name, Double.parseDouble(parts[3]), Integer.parseInt(parts[4]));
+            case COMMISSIONED:
+                return new CommissionedEmployee(id, name, Double.parseDouble(parts[3]), Integer.parseInt(parts[4]));
+        }
+        return null;
+    }
+}
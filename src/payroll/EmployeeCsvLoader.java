@@ -0,0 +1,361 @@
+package payroll;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+// EmployeeCsvLoader class for reading employees.txt files of any size in one pass on a fork-join pool.
+// The file is cut into byte ranges that end on a newline; each range is mapped and parsed on its own
+// by a tokenizer that finds the fields as offsets into the mapped bytes and parses ids and amounts
+// straight from them, so only names are ever copied. Parsed ranges are handed to the caller in file
+// order, a few at a time, so a file far larger than the heap can be streamed; load(File) collects
+// them instead. Lines are read as EmployeeCsv.parse reads them, in the platform charset (which must
+// be ASCII-compatible, like UTF-8), and lines with fewer than three fields are skipped.
+class EmployeeCsvLoader {
+    static final int DEFAULT_CHUNK_BYTES = 32 << 20;
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    private static final int MAX_FIELDS = 5; // id, name, type and up to two amounts
+    private static final byte[] SALARIED = bytes(EmployeeType.SALARIED);
+    private static final byte[] HOURLY = bytes(EmployeeType.HOURLY);
+    private static final byte[] COMMISSIONED = bytes(EmployeeType.COMMISSIONED);
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final ForkJoinPool pool;
+    private final int chunkBytes;
+
+    public EmployeeCsvLoader() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_BYTES);
+    }
+
+    public EmployeeCsvLoader(ForkJoinPool pool, int chunkBytes) {
+        if (chunkBytes <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.pool = pool;
+        this.chunkBytes = chunkBytes;
+    }
+
+    // Every employee in the file, in file order
+    public CsvLoadResult load(File file) throws IOException {
+        List<Employee> employees = new ArrayList<>();
+        CsvLoadResult result = load(file, chunk -> {
+            for (Employee employee : chunk) {
+                employees.add(employee);
+            }
+        });
+        return new CsvLoadResult(employees.toArray(new Employee[0]), result.getEmployeeCount(),
+                result.getMaxEmployeeId(), result.getLines(), result.getBytes(), result.getWallNanos());
+    }
+
+    // Hand the employees to the consumer chunk by chunk, in file order, on the calling thread. The
+    // result has no employees, only the counts.
+    public CsvLoadResult load(File file, Consumer<Employee[]> consumer) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = chunkBounds(channel, size);
+            int window = 2 * pool.getParallelism(); // Chunks parsed ahead of the one being handed over
+            Deque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+            int submitted = 0;
+            long count = 0;
+            long lines = 0;
+            int maxId = 0;
+            try {
+                for (int next = 0; next < bounds.length - 1; next++) {
+                    while (submitted < bounds.length - 1 && submitted < next + window) {
+                        long from = bounds[submitted];
+                        long to = bounds[submitted + 1];
+                        inFlight.add(pool.submit(() -> parse(channel, from, to)));
+                        submitted++;
+                    }
+                    Chunk chunk = inFlight.removeFirst().get();
+                    consumer.accept(chunk.employees);
+                    count += chunk.employees.length;
+                    lines += chunk.lines;
+                    maxId = Math.max(maxId, chunk.maxId);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted reading " + file, e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                while (!(cause instanceof IOException) && cause.getCause() != null) {
+                    cause = cause.getCause(); // The pool wraps what a task throws, once or more
+                }
+                if (cause instanceof IOException) throw (IOException) cause;
+                throw new IOException("Error reading " + file + ": " + cause.getMessage(), cause);
+            } finally {
+                inFlight.forEach(task -> task.cancel(false));
+            }
+            return new CsvLoadResult(null, count, maxId, lines, size, System.nanoTime() - start);
+        }
+    }
+
+    // Chunk boundaries: 0, each position just past the first newline at or after a nominal cut, size
+    private long[] chunkBounds(FileChannel channel, long size) throws IOException {
+        long target = Math.max(MIN_CHUNK_BYTES, Math.min(chunkBytes, size / (4L * pool.getParallelism())));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long start = 0;
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        while (start < size) {
+            long end = Math.min(size, start + target);
+            if (end < size) {
+                end = lineEndFrom(channel, end - 1, size, probe);
+            }
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Line too long at byte " + start);
+            }
+            bounds.add(end);
+            start = end;
+        }
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    // Position just past the first newline at or after the given one, or size if there is none
+    private static long lineEndFrom(FileChannel channel, long position, long size, ByteBuffer probe) throws IOException {
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static Chunk parse(FileChannel channel, long from, long to) throws IOException {
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        int end = bytes.limit();
+        List<Employee> employees = new ArrayList<>(end / 40);
+        int[] fieldStart = new int[MAX_FIELDS];
+        int[] fieldEnd = new int[MAX_FIELDS];
+        byte[] name = new byte[64];
+        Charset charset = Charset.defaultCharset();
+        int maxId = 0;
+        int lines = 0;
+
+        int lineStart = 0;
+        while (lineStart < end) {
+            // One line: note where the fields are, up to the newline
+            int fields = 0;
+            int nonEmptyFields = 0; // Fields up to the last non-empty one, as String.split counts them
+            int fieldBegin = lineStart;
+            int position = lineStart;
+            int lineEnd;
+            while (true) {
+                byte b = position < end ? bytes.get(position) : (byte) '\n';
+                if (b == ',' || b == '\n') {
+                    int fieldFinish = position;
+                    if (b == '\n' && fieldFinish > fieldBegin && bytes.get(fieldFinish - 1) == '\r') {
+                        fieldFinish--;
+                    }
+                    if (fields < MAX_FIELDS) {
+                        fieldStart[fields] = fieldBegin;
+                        fieldEnd[fields] = fieldFinish;
+                    }
+                    fields++;
+                    if (fieldFinish > fieldBegin) {
+                        nonEmptyFields = fields;
+                    }
+                    fieldBegin = position + 1;
+                    if (b == '\n') {
+                        lineEnd = position;
+                        break;
+                    }
+                }
+                position++;
+            }
+            lines++;
+            if (nonEmptyFields > 2) {
+                Employee employee;
+                try {
+                    employee = employee(bytes, fieldStart, fieldEnd, nonEmptyFields, name, charset);
+                } catch (RuntimeException e) {
+                    throw new IOException("Bad employee record at byte " + (from + lineStart) + ": "
+                            + text(bytes, lineStart, lineEnd, charset), e);
+                }
+                employees.add(employee);
+                maxId = Math.max(maxId, employee.getEmployeeId());
+            }
+            lineStart = lineEnd + 1;
+        }
+        return new Chunk(employees.toArray(new Employee[0]), lines, maxId);
+    }
+
+    private static Employee employee(ByteBuffer bytes, int[] start, int[] end, int fields, byte[] nameBuffer, Charset charset) {
+        int id = parseInt(bytes, start[0], end[0]);
+        int nameLength = end[1] - start[1];
+        if (nameLength > nameBuffer.length) {
+            nameBuffer = new byte[nameLength];
+        }
+        bytes.get(start[1], nameBuffer, 0, nameLength);
+        String name = new String(nameBuffer, 0, nameLength, charset);
+        EmployeeType type = type(bytes, start[2], end[2], charset);
+        if (fields < (type == EmployeeType.SALARIED ? 4 : 5)) {
+            throw new IllegalArgumentException("Missing fields for " + type);
+        }
+        switch (type) {
+            case SALARIED:
+                return new SalariedEmployee(id, name, parseDouble(bytes, start[3], end[3]));
+            case HOURLY:
+                return new HourlyEmployee(id, name, parseDouble(bytes, start[3], end[3]), parseInt(bytes, start[4], end[4]));
+            case COMMISSIONED:
+                return new CommissionedEmployee(id, name, parseDouble(bytes, start[3], end[3]), parseInt(bytes, start[4], end[4]));
+        }
+        throw new IllegalArgumentException("Unknown employee type " + type);
+    }
+
+    private static EmployeeType type(ByteBuffer bytes, int start, int end, Charset charset) {
+        if (matches(bytes, start, end, SALARIED)) return EmployeeType.SALARIED;
+        if (matches(bytes, start, end, HOURLY)) return EmployeeType.HOURLY;
+        if (matches(bytes, start, end, COMMISSIONED)) return EmployeeType.COMMISSIONED;
+        return EmployeeType.valueOf(text(bytes, start, end, charset)); // Throws for anything else
+    }
+
+    private static boolean matches(ByteBuffer bytes, int start, int end, byte[] expected) {
+        if (end - start != expected.length) return false;
+        for (int i = 0; i < expected.length; i++) {
+            if (bytes.get(start + i) != expected[i]) return false;
+        }
+        return true;
+    }
+
+    // Same result as Integer.parseInt on the field's text
+    static int parseInt(ByteBuffer bytes, int start, int end) {
+        boolean negative = start < end && bytes.get(start) == '-';
+        int position = negative ? start + 1 : start;
+        if (position == end || end - position > 9) {
+            return Integer.parseInt(text(bytes, start, end, Charset.defaultCharset())); // Empty, or long enough to overflow
+        }
+        int value = 0;
+        for (; position < end; position++) {
+            int digit = bytes.get(position) - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(text(bytes, start, end, Charset.defaultCharset())); // Throws with the usual message
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    // Same result as Double.parseDouble on the field's text. Plain decimals with up to 15 digits are
+    // computed directly: the digits and the power of ten are both exact doubles, so one division gives
+    // the correctly rounded value. Anything else (exponents, longer numbers) goes to Double.parseDouble.
+    static double parseDouble(ByteBuffer bytes, int start, int end) {
+        boolean negative = start < end && bytes.get(start) == '-';
+        int position = negative ? start + 1 : start;
+        long digits = 0;
+        int digitCount = 0;
+        int fractionDigits = -1; // -1 until the decimal point
+        for (; position < end; position++) {
+            byte b = bytes.get(position);
+            if (b >= '0' && b <= '9') {
+                digits = digits * 10 + (b - '0');
+                digitCount++;
+                if (fractionDigits >= 0) fractionDigits++;
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                digitCount = Integer.MAX_VALUE; // Not a plain decimal
+                break;
+            }
+        }
+        if (digitCount == 0 || digitCount > 15) {
+            return Double.parseDouble(text(bytes, start, end, Charset.defaultCharset()));
+        }
+        double value = fractionDigits > 0 ? digits / POWERS_OF_TEN[fractionDigits] : digits;
+        return negative ? -value : value;
+    }
+
+    private static String text(ByteBuffer bytes, int start, int end, Charset charset) {
+        byte[] copy = new byte[end - start];
+        bytes.get(start, copy);
+        return new String(copy, charset);
+    }
+
+    private static byte[] bytes(EmployeeType type) {
+        return type.name().getBytes(Charset.defaultCharset());
+    }
+
+    private static final class Chunk {
+        final Employee[] employees;
+        final int lines;
+        final int maxId;
+
+        Chunk(Employee[] employees, int lines, int maxId) {
+            this.employees = employees;
+            this.lines = lines;
+            this.maxId = maxId;
+        }
+    }
+}
+
+// Result of reading an employees.txt file with EmployeeCsvLoader
+class CsvLoadResult {
+    private final Employee[] employees;
+    private final long employeeCount;
+    private final int maxEmployeeId;
+    private final long lines;
+    private final long bytes;
+    private final long wallNanos;
+
+    CsvLoadResult(Employee[] employees, long employeeCount, int maxEmployeeId, long lines, long bytes, long wallNanos) {
+        this.employees = employees;
+        this.employeeCount = employeeCount;
+        this.maxEmployeeId = maxEmployeeId;
+        this.lines = lines;
+        this.bytes = bytes;
+        this.wallNanos = wallNanos;
+    }
+
+    // Employees in file order, with later lines for the same id after earlier ones; null when the
+    // employees were streamed to a consumer
+    public Employee[] getEmployees() {
+        return employees;
+    }
+
+    public long getEmployeeCount() {
+        return employeeCount;
+    }
+
+    // Highest id in the file, or 0 if there were no employees
+    public int getMaxEmployeeId() {
+        return maxEmployeeId;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public double getLinesPerSecond() {
+        return wallNanos == 0 ? 0 : lines * 1_000_000_000.0 / wallNanos;
+    }
+}
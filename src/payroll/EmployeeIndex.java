@@ -0,0 +1,67 @@
+package payroll;
+
+import java.util.Collection;
+import java.util.List;
+
+// EmployeeIndex interface for where PayrollSystem keeps its employees, looked up by int id:
+// DenseEmployeeIndex holds them all in memory, LazyEmployeeIndex reads them from employees.bin as
+// they are asked for. Reads may run at any time; writers to one id take turns, and writers that run
+// concurrently call reserve() under their own exclusive lock first.
+interface EmployeeIndex {
+    int size();
+
+    boolean isEmpty();
+
+    Employee get(int employeeId);
+
+    // Whether put() for this id can run alongside other writers without reserve() first
+    boolean fits(int employeeId);
+
+    // Make room for the id; must not run alongside other writers
+    void reserve(int employeeId);
+
+    // Store the employee under its id; returns the employee it replaced, if any
+    Employee put(Employee employee);
+
+    // Remove the employee with this id; returns it, or null if there was none
+    Employee remove(int employeeId);
+
+    // Live employees in id order
+    Collection<Employee> values();
+
+    // Employees in id order as they are now, for reading after writers resume; callers keep writers
+    // out until this returns. Stored employees are never changed in place, so the snapshot stays as it was.
+    Collection<Employee> capture();
+
+    // The next page of employees: up to limit with ids above the cursor, in id order. The cursor is
+    // the last id already seen (EmployeePage.START for the first page), not a position, so employees
+    // added or removed meanwhile never shift the pages that follow.
+    EmployeePage page(int cursor, int limit);
+}
+
+// One page of employees in id order, and the cursor to pass for the page after it
+class EmployeePage {
+    static final int START = Integer.MIN_VALUE; // Cursor for the first page
+
+    private final List<Employee> employees;
+    private final boolean more;
+
+    EmployeePage(List<Employee> employees, boolean more) {
+        this.employees = employees;
+        this.more = more;
+    }
+
+    public List<Employee> getEmployees() {
+        return employees;
+    }
+
+    // Whether there were employees after this page when it was read
+    public boolean hasMore() {
+        return more;
+    }
+
+    // The last id on this page; employees after it make up the next page
+    public int getNextCursor() {
+        return employees.isEmpty() ? START : employees.get(employees.size() - 1).getEmployeeId();
+    }
+}
@@ -0,0 +1,445 @@
+package payroll;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// EmployeeJournal class for appending employee changes instead of rewriting the whole snapshot.
+// Every add/update is written as "U,<employee record>" and every removal as "D,<id>".
+// Writing is behind the callers: recording a change only queues its line and returns its sequence
+// number. A writer thread lets changes gather for up to the flush interval, then writes everything
+// queued in one go and, with FsyncPolicy.EVERY_FLUSH, forces it to disk: one write and one fsync
+// for however many sessions changed something meanwhile (group commit). Callers that need a change
+// on disk wait for its sequence number with awaitDurable(), or for everything so far with sync().
+// A failed write keeps its records queued and is retried with a growing delay; each failure and the
+// recovery are reported, and callers waiting for durability get the error.
+// Once the journal grows past the threshold it is rotated to <journal>.old and a background
+// thread folds it into a fresh snapshot, after which the rotated file is deleted.
+// Recording is synchronized, so any number of sessions can share one journal.
+class EmployeeJournal implements Closeable {
+    static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
+    private static final String UPSERT = "U";
+    private static final String REMOVE = "D";
+    private static final int MAX_BATCH_CHARS = 1 << 20; // Write at once when this much is queued
+    private static final long FIRST_RETRY_MILLIS = 100;
+    private static final long MAX_RETRY_MILLIS = 5_000;
+    private static final int ATTEMPTS_AFTER_CLOSE = 3; // Give up on a failing disk this many tries after close()
+
+    // When written records are forced to disk
+    enum FsyncPolicy {
+        NEVER,       // Leave it to the operating system; survives a crash of the process, not of the machine
+        EVERY_FLUSH  // Force every batch before it counts as durable
+    }
+
+    // Told, on the compactor thread, that the snapshot file now holds these captured employees
+    interface SnapshotWritten {
+        void written(Collection<Employee> snapshot) throws IOException;
+    }
+
+    private final File snapshotFile;
+    private final File journalFile;
+    private final File compactingFile; // Journal records not yet folded into the snapshot
+    private final long compactionThreshold; // Journal size in bytes that triggers compaction
+    private final FsyncPolicy fsyncPolicy;
+    private final long flushIntervalNanos;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "employee-journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> pendingCompaction;
+    private long journalBytes;
+    private final LatencyHistogram writeTimes = new LatencyHistogram(); // Each batch written (and forced)
+    private final LatencyHistogram snapshotTimes = new LatencyHistogram(); // Each snapshot written by a compaction
+    private final AtomicLong snapshotFailures = new AtomicLong();
+
+    // Queue, guarded by this
+    private StringBuilder queued = new StringBuilder();
+    private long queuedSince; // When the oldest queued record was recorded
+    private long recorded; // Sequence number of the last record queued
+    private long durable; // Sequence number of the last record written (and forced, if the policy says so)
+    private int waiters; // Callers in awaitDurable(); the writer does not wait out the interval for them
+    private IOException failure; // Why the last write failed, until one succeeds
+    private int failedAttempts; // Since the last successful write
+    private long writeFailures; // Ever
+    private boolean closed;
+    private Thread writer;
+
+    // File, guarded by ioLock; whoever needs both takes this object's lock first
+    private final ReentrantLock ioLock = new ReentrantLock();
+    private FileChannel channel;
+    private long writtenSize; // File size after the last complete write
+
+    public EmployeeJournal(File snapshotFile, long compactionThreshold) {
+        this(snapshotFile, compactionThreshold, FsyncPolicy.NEVER, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public EmployeeJournal(File snapshotFile, long compactionThreshold, FsyncPolicy fsyncPolicy, long flushIntervalMillis) {
+        if (flushIntervalMillis < 0) {
+            throw new IllegalArgumentException("Flush interval must not be negative: " + flushIntervalMillis);
+        }
+        this.snapshotFile = snapshotFile;
+        this.journalFile = new File(snapshotFile.getPath() + ".journal");
+        this.compactingFile = new File(snapshotFile.getPath() + ".journal.old");
+        this.compactionThreshold = compactionThreshold;
+        this.fsyncPolicy = fsyncPolicy;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+    }
+
+    // Apply journal records on top of the loaded snapshot, then open the journal for appending
+    public synchronized void replay(EmployeeIndex employees) throws IOException {
+        replayFile(compactingFile, employees); // Left over from a compaction that did not finish
+        replayFile(journalFile, employees);
+
+        journalBytes = journalFile.length();
+        openChannel();
+        writer = new Thread(this::writeBehind, "employee-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void replayFile(File file, EmployeeIndex employees) throws IOException {
+        if (!file.exists()) return;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) { // As write() encodes it
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(',');
+                if (separator < 0) continue;
+
+                String op = line.substring(0, separator);
+                String record = line.substring(separator + 1);
+                try {
+                    if (op.equals(UPSERT)) {
+                        Employee employee = EmployeeCsv.parse(record);
+                        if (employee != null) {
+                            employees.put(employee);
+                        }
+                    } else if (op.equals(REMOVE)) {
+                        employees.remove(Integer.parseInt(record));
+                    }
+                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                    // A torn last line from a crash mid-append; everything before it is still valid
+                    System.out.println("Skipping unreadable journal record: " + line);
+                }
+            }
+        }
+    }
+
+    // Queue the employee's state; returns its sequence number for awaitDurable()
+    public synchronized long recordUpsert(Employee employee) throws IOException {
+        return append(UPSERT + "," + EmployeeCsv.format(employee));
+    }
+
+    public synchronized long recordRemoval(int employeeId) throws IOException {
+        return append(REMOVE + "," + employeeId);
+    }
+
+    private long append(String line) throws IOException {
+        if (closed || writer == null) {
+            throw new IOException("Employee journal is not open");
+        }
+        if (queued.length() == 0) {
+            queuedSince = System.nanoTime();
+            notifyAll(); // Wake the writer
+        }
+        queued.append(line).append('\n');
+        journalBytes += line.length() + 1;
+        if (queued.length() >= MAX_BATCH_CHARS) {
+            notifyAll(); // Enough for a write without waiting out the interval
+        }
+        return ++recorded;
+    }
+
+    // Wait until the record with this sequence number is written. Throws if writing is failing
+    // meanwhile; the record stays queued and is retried, so it may still be written later.
+    public synchronized void awaitDurable(long sequence) throws IOException {
+        waiters++;
+        notifyAll(); // Stop the writer waiting for more records
+        try {
+            while (durable < sequence) {
+                if (failure != null) {
+                    throw new IOException("Employee journal not written yet (" + failedAttempts
+                            + " failed attempts, still retrying): " + reason(failure), failure);
+                }
+                if (writer == null || !writer.isAlive()) {
+                    throw new IOException("Employee journal writer has stopped");
+                }
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the employee journal");
+        } finally {
+            waiters--;
+        }
+    }
+
+    // Wait until everything recorded so far is written
+    public void sync() throws IOException {
+        long sequence;
+        synchronized (this) {
+            sequence = recorded;
+        }
+        awaitDurable(sequence);
+    }
+
+    public synchronized int getQueuedRecords() {
+        return (int) (recorded - durable);
+    }
+
+    public synchronized long getWriteFailures() {
+        return writeFailures;
+    }
+
+    public LatencyHistogram getWriteTimes() {
+        return writeTimes;
+    }
+
+    public LatencyHistogram getSnapshotTimes() {
+        return snapshotTimes;
+    }
+
+    public long getSnapshotFailures() {
+        return snapshotFailures.get();
+    }
+
+    // Bytes in the journal files: written and still to be folded into the snapshot
+    public long getFileBytes() {
+        return journalFile.length() + compactingFile.length();
+    }
+
+    // Write attempts that have failed in a row; 0 while the journal is being written
+    public synchronized int getFailedAttempts() {
+        return failedAttempts;
+    }
+
+    // The writer thread: take what is queued, write it, repeat
+    private void writeBehind() {
+        while (true) {
+            String batch;
+            long batchEnd;
+            synchronized (this) {
+                try {
+                    while (queued.length() == 0 && !closed) {
+                        wait();
+                    }
+                    if (queued.length() == 0) return; // Closed and drained
+                    // Let more records join the batch, unless someone is waiting for these
+                    long remaining;
+                    while (!closed && waiters == 0 && queued.length() < MAX_BATCH_CHARS
+                            && (remaining = queuedSince + flushIntervalNanos - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                batch = queued.toString();
+                batchEnd = recorded;
+                queued = new StringBuilder();
+            }
+
+            IOException error = write(batch);
+            synchronized (this) {
+                if (error == null) {
+                    durable = batchEnd;
+                    if (failure != null) {
+                        System.out.println("Employee journal written again after " + failedAttempts + " failed attempts");
+                        failure = null;
+                        failedAttempts = 0;
+                    }
+                    notifyAll();
+                    continue;
+                }
+                queued.insert(0, batch); // Keep the order: these records come before anything queued since
+                queuedSince = System.nanoTime();
+                failure = error;
+                failedAttempts++;
+                writeFailures++;
+                notifyAll();
+                long delay = Math.min(MAX_RETRY_MILLIS, FIRST_RETRY_MILLIS << Math.min(failedAttempts - 1, 16));
+                System.out.println("Error writing employee journal (attempt " + failedAttempts + ", "
+                        + (recorded - durable) + " records queued), retrying in " + delay + " ms: " + reason(error));
+                if (closed && failedAttempts >= ATTEMPTS_AFTER_CLOSE) return;
+                try {
+                    wait(delay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Append one batch. On failure the file is cut back to its last complete write and closed, and
+    // the next attempt opens it again, in case the file or its disk was replaced meanwhile.
+    private IOException write(String batch) {
+        long start = System.nanoTime();
+        ioLock.lock();
+        try {
+            if (channel == null) {
+                openChannel();
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(batch.getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (fsyncPolicy == FsyncPolicy.EVERY_FLUSH) {
+                channel.force(false);
+            }
+            writtenSize += bytes.capacity();
+            writeTimes.recordSince(start);
+            return null;
+        } catch (IOException e) {
+            try {
+                if (channel != null) {
+                    channel.truncate(writtenSize);
+                }
+            } catch (IOException truncateError) {
+                e.addSuppressed(truncateError);
+            }
+            closeChannel();
+            return e;
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private static String reason(IOException e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        writtenSize = channel.size();
+        channel.position(writtenSize); // Only the writer thread writes, always at the end
+        ByteBuffer last = ByteBuffer.allocate(1);
+        if (writtenSize > 0 && channel.read(last, writtenSize - 1) == 1 && last.get(0) != '\n') {
+            // A write that failed part way and could not be cut back; end the torn record so that
+            // replay skips it instead of gluing it to the next one
+            channel.write(ByteBuffer.wrap(new byte[]{'\n'}));
+            writtenSize++;
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ignored) {
+            // Nothing more can be lost: the records are still queued
+        } finally {
+            channel = null;
+        }
+    }
+
+    public synchronized boolean needsCompaction() {
+        return journalBytes >= compactionThreshold;
+    }
+
+    // Start a background compaction once the journal is past the threshold and no other one is running.
+    // Callers must keep the employees from changing until this returns. Once the snapshot is in place,
+    // written is told on the compactor thread which employees it holds.
+    public synchronized void compactIfNeeded(EmployeeIndex employees, SnapshotWritten written) throws IOException {
+        if (journalBytes < compactionThreshold) return;
+        if (pendingCompaction != null && !pendingCompaction.isDone()) return;
+
+        // Capture the employees now, while they match exactly what the journal describes. Records still
+        // queued land in the new journal; replaying them over the snapshot gives the same employees.
+        Collection<Employee> snapshot = employees.capture();
+        rotate();
+        pendingCompaction = compactor.submit(() -> writeSnapshot(snapshot, written));
+    }
+
+    // Move the current journal's records into the compacting file and start an empty journal
+    private void rotate() throws IOException {
+        ioLock.lock(); // Waits for a write in progress
+        try {
+            closeChannel();
+            if (compactingFile.exists()) {
+                // A previous compaction failed; keep its records alongside the new ones
+                Files.write(compactingFile.toPath(), Files.readAllBytes(journalFile.toPath()), StandardOpenOption.APPEND);
+                Files.delete(journalFile.toPath());
+            } else if (journalFile.exists()) {
+                Files.move(journalFile.toPath(), compactingFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+            openChannel();
+        } finally {
+            ioLock.unlock();
+        }
+        journalBytes = queued.length();
+    }
+
+    private void writeSnapshot(Collection<Employee> snapshot, SnapshotWritten written) {
+        long start = System.nanoTime();
+        try {
+            BinaryEmployeeStore.write(snapshotFile, snapshot);
+            Files.deleteIfExists(compactingFile.toPath());
+            snapshotTimes.recordSince(start);
+        } catch (IOException e) {
+            snapshotFailures.incrementAndGet();
+            System.out.println("Error compacting employee journal: " + e.getMessage());
+            return;
+        }
+        try {
+            written.written(snapshot);
+        } catch (IOException e) {
+            System.out.println("Error reopening employee snapshot: " + e.getMessage());
+        }
+    }
+
+    // Write out everything queued, wait for a running compaction and close the journal. Throws if
+    // records could not be written.
+    @Override
+    public void close() throws IOException {
+        Thread writer;
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+            writer = this.writer;
+        }
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Future<?> compaction;
+        synchronized (this) {
+            compaction = pendingCompaction;
+        }
+        if (compaction != null) {
+            try {
+                compaction.get(); // Not holding the journal: the compaction may wait for writers to finish
+            } catch (Exception e) {
+                System.out.println("Error compacting employee journal: " + e.getMessage());
+            }
+        }
+        compactor.shutdown();
+        ioLock.lock();
+        try {
+            closeChannel();
+        } finally {
+            ioLock.unlock();
+        }
+        synchronized (this) {
+            if (recorded > durable) {
+                throw new IOException((recorded - durable) + " employee journal records could not be written",
+                        failure);
+            }
+        }
+    }
+}
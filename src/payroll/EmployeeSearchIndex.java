@@ -0,0 +1,161 @@
+package payroll;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// EmployeeSearchIndex class for finding employees by something other than their id: by name prefix
+// (ignoring case), by EmployeeType and by pay rate range. It is kept in step with the store the same
+// way as PayrollAggregates: every employee that is stored, replaced by a changed copy or removed is
+// passed in, so the indexes follow setName, setSalary and the other setters. Names and rates are
+// sorted maps, so a prefix or a range is one ordered walk; types are one bit per id. Queries return
+// at most limit ids. All methods are synchronized, so sessions can share one instance.
+class EmployeeSearchIndex {
+    private final NavigableMap<String, IdList> names = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final BitSet[] types = new BitSet[EmployeeType.values().length]; // Indexed by employee id
+    // Per type: salary or hourly rate in cents, commission rate in millionths
+    private final Map<EmployeeType, NavigableMap<Long, IdList>> rates = new EnumMap<>(EmployeeType.class);
+
+    public EmployeeSearchIndex() {
+        for (EmployeeType type : EmployeeType.values()) {
+            types[type.ordinal()] = new BitSet();
+            rates.put(type, new TreeMap<>());
+        }
+    }
+
+    public synchronized void add(Employee employee) {
+        int id = employee.getEmployeeId();
+        names.computeIfAbsent(nameOf(employee), name -> new IdList()).add(id);
+        types[employee.getEmployeeType().ordinal()].set(id);
+        rates.get(employee.getEmployeeType()).computeIfAbsent(rateOf(employee), rate -> new IdList()).add(id);
+    }
+
+    public synchronized void remove(Employee employee) {
+        int id = employee.getEmployeeId();
+        removeId(names, nameOf(employee), id);
+        types[employee.getEmployeeType().ordinal()].clear(id);
+        removeId(rates.get(employee.getEmployeeType()), rateOf(employee), id);
+    }
+
+    // The stored employee was replaced by a changed copy; either side may be null
+    public synchronized void replace(Employee previous, Employee changed) {
+        if (previous != null && changed != null && previous.getEmployeeType() == changed.getEmployeeType()
+                && nameOf(previous).equals(nameOf(changed)) && rateOf(previous) == rateOf(changed)) {
+            return; // Nothing indexed changed, e.g. hours worked or total sales
+        }
+        if (previous != null) remove(previous);
+        if (changed != null) add(changed);
+    }
+
+    // Start over from the given employees
+    public synchronized void reset(Collection<Employee> employees) {
+        names.clear();
+        for (EmployeeType type : EmployeeType.values()) {
+            types[type.ordinal()].clear();
+            rates.get(type).clear();
+        }
+        for (Employee employee : employees) {
+            add(employee);
+        }
+    }
+
+    // Ids of employees whose name starts with the prefix, ignoring case, in name order
+    public synchronized int[] byNamePrefix(String prefix, int limit) {
+        if (prefix.isEmpty()) {
+            return collect(names, limit);
+        }
+        // Every name with the prefix sorts between the prefix and the prefix followed by the highest char
+        return collect(names.subMap(prefix, true, prefix + Character.MAX_VALUE, true), limit);
+    }
+
+    // Ids of employees of the type, in id order, starting after the given id
+    public synchronized int[] byType(EmployeeType type, int afterId, int limit) {
+        BitSet ids = types[type.ordinal()];
+        int[] found = new int[Math.min(limit, 64)];
+        int count = 0;
+        for (int id = ids.nextSetBit(Math.max(0, afterId + 1)); id >= 0 && count < limit; id = ids.nextSetBit(id + 1)) {
+            if (count == found.length) {
+                found = Arrays.copyOf(found, Math.min(limit, found.length * 2));
+            }
+            found[count++] = id;
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    // Ids of employees of the type with a rate in [min, max], in rate order
+    public synchronized int[] byRate(EmployeeType type, long min, long max, int limit) {
+        if (min > max) return new int[0];
+        return collect(rates.get(type).subMap(min, true, max, true), limit);
+    }
+
+    public synchronized int size(EmployeeType type) {
+        return types[type.ordinal()].cardinality();
+    }
+
+    static long rateOf(Employee employee) {
+        if (employee instanceof SalariedEmployee) {
+            return ((SalariedEmployee) employee).getSalaryCents();
+        } else if (employee instanceof HourlyEmployee) {
+            return ((HourlyEmployee) employee).getHourlyRateCents();
+        } else if (employee instanceof CommissionedEmployee) {
+            return ((CommissionedEmployee) employee).getCommissionRateMicros();
+        }
+        return 0;
+    }
+
+    private static String nameOf(Employee employee) {
+        return employee.getName() == null ? "" : employee.getName();
+    }
+
+    private static <K> void removeId(Map<K, IdList> index, K key, int id) {
+        IdList ids = index.get(key);
+        if (ids != null && ids.remove(id) && ids.size == 0) {
+            index.remove(key);
+        }
+    }
+
+    private static int[] collect(Map<?, IdList> index, int limit) {
+        int[] found = new int[Math.min(limit, 64)];
+        int count = 0;
+        for (IdList ids : index.values()) {
+            for (int i = 0; i < ids.size && count < limit; i++) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, Math.min(limit, found.length * 2));
+                }
+                found[count++] = ids.ids[i];
+            }
+            if (count == limit) break;
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    // Sorted ids sharing one name or rate; most names have one, common rates have many
+    private static final class IdList {
+        int[] ids = new int[1];
+        int size;
+
+        void add(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) return;
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index); // Nothing to move for ids added in order
+            ids[index] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) return false;
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
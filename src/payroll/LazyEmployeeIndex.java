@@ -0,0 +1,409 @@
+package payroll;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// LazyEmployeeIndex class for deployments that cannot hold every employee in memory
+// (-Dpayroll.lazy=true). Opening it reads only the ids in employees.bin, into an array of record
+// positions by id; an employee is decoded from the mapped file the first time it is asked for and
+// kept in a bounded LRU cache. Employees changed since the snapshot (by the journal or this
+// process) are held in memory in full, since the file no longer describes them, until journal
+// compaction writes a new employees.bin and reopen() switches to it.
+// Scans (values, capture, page) decode records straight from the file without touching the cache,
+// so a payroll run over everyone does not push out the employees sessions are working on.
+// Same contract as EmployeeIndex: reads may run at any time, writers to one id take turns.
+class LazyEmployeeIndex implements EmployeeIndex, Closeable {
+    static final int DEFAULT_CACHE_CAPACITY = 10_000;
+    private static final int NO_RECORD = -1;
+
+    private volatile State state; // Replaced as a whole when compaction writes a new snapshot
+    private final Map<Integer, Employee> cache; // Guarded by itself
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final Collection<Employee> values = new Values();
+
+    private LazyEmployeeIndex(BinaryEmployeeStore store, int cacheCapacity) {
+        if (cacheCapacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + cacheCapacity);
+        }
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Employee> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+        Records records = new Records(store);
+        state = new State(records, new ConcurrentSkipListMap<>(), ConcurrentHashMap.newKeySet());
+        size.set(records.size());
+    }
+
+    // Index the snapshot file, which may not exist yet
+    public static LazyEmployeeIndex open(File snapshot, int cacheCapacity) throws IOException {
+        return new LazyEmployeeIndex(snapshot.exists() ? BinaryEmployeeStore.open(snapshot) : null, cacheCapacity);
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    @Override
+    public Employee get(int employeeId) {
+        return find(employeeId, true);
+    }
+
+    // Nothing to grow: changed employees are kept in a map
+    @Override
+    public boolean fits(int employeeId) {
+        return true;
+    }
+
+    @Override
+    public void reserve(int employeeId) {
+    }
+
+    @Override
+    public Employee put(Employee employee) {
+        State state = this.state;
+        int employeeId = employee.getEmployeeId();
+        Employee previous = find(employeeId, false);
+        state.changed.put(employeeId, employee);
+        shadow(state, employeeId);
+        if (previous == null) {
+            size.incrementAndGet();
+        }
+        return previous;
+    }
+
+    @Override
+    public Employee remove(int employeeId) {
+        State state = this.state;
+        Employee previous = find(employeeId, false);
+        if (previous == null) return null;
+        shadow(state, employeeId); // Before leaving changed, so readers never fall back to the old record
+        state.changed.remove(employeeId);
+        size.decrementAndGet();
+        return previous;
+    }
+
+    // Live employees in id order, decoded as the iteration reaches them
+    @Override
+    public Collection<Employee> values() {
+        return values;
+    }
+
+    // The snapshot records current now and a copy of the changed employees; writers may carry on
+    // once this returns, and compaction streams the employees from the file while it writes
+    @Override
+    public Collection<Employee> capture() {
+        return new Captured(state, size.get());
+    }
+
+    // Switch to a snapshot file written from capture(), so that the changed employees it holds no
+    // longer need to be kept in memory; only changes made since the capture stay. Callers must keep
+    // writers out.
+    public void reopen(File snapshot, Collection<Employee> written) throws IOException {
+        if (!(written instanceof Captured)) {
+            throw new IllegalArgumentException("Not captured from this index");
+        }
+        Captured captured = (Captured) written;
+        State current = state;
+        Records records = new Records(BinaryEmployeeStore.open(snapshot));
+        if (records.size() != captured.size) {
+            records.close();
+            throw new IOException(snapshot + " holds " + records.size() + " employees, not the " + captured.size + " captured");
+        }
+
+        ConcurrentSkipListMap<Integer, Employee> changed = new ConcurrentSkipListMap<>();
+        Set<Integer> shadowed = ConcurrentHashMap.newKeySet();
+        List<Integer> covered = new ArrayList<>();
+        for (Map.Entry<Integer, Employee> entry : current.changed.entrySet()) {
+            int employeeId = entry.getKey();
+            if (captured.state.changed.get(employeeId) == entry.getValue()) {
+                covered.add(employeeId); // The new file has it as it is now
+                continue;
+            }
+            changed.put(employeeId, entry.getValue());
+            if (records.recordOf(employeeId) != NO_RECORD) {
+                shadowed.add(employeeId);
+            }
+        }
+        for (Integer employeeId : current.shadowed) {
+            if (!current.changed.containsKey(employeeId) && records.recordOf(employeeId) != NO_RECORD) {
+                shadowed.add(employeeId); // Removed since the capture
+            }
+        }
+        for (Integer employeeId : captured.state.changed.keySet()) {
+            if (!current.changed.containsKey(employeeId)) {
+                shadowed.add(employeeId); // Written to the new file, then removed
+            }
+        }
+        state = new State(records, changed, shadowed);
+        synchronized (cache) {
+            covered.forEach(cache::remove); // In case a read of the old record raced with the change
+        }
+        current.records.close(); // Scans still running keep reading the mapping
+    }
+
+    @Override
+    public EmployeePage page(int cursor, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + limit);
+        }
+        List<Employee> found = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<Employee> scan = new Scan(state, cursor);
+        while (scan.hasNext() && found.size() < limit) {
+            found.add(scan.next());
+        }
+        return new EmployeePage(found, scan.hasNext());
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    public int getCachedEmployees() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    // The number of changed employees held in memory in full
+    public int getChangedEmployees() {
+        return state.changed.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        state.records.close();
+    }
+
+    private Employee find(int employeeId, boolean useCache) {
+        State state = this.state;
+        Employee employee = state.changed.get(employeeId);
+        if (employee != null) return employee;
+        if (state.shadowed.contains(employeeId)) return null; // Removed since the snapshot
+        int record = state.records.recordOf(employeeId);
+        if (record == NO_RECORD) return null;
+        BinaryEmployeeStore store = state.records.store;
+        if (!useCache) return store.read(record);
+
+        synchronized (cache) {
+            employee = cache.get(employeeId);
+        }
+        if (employee != null) {
+            cacheHits.incrementAndGet();
+            return employee;
+        }
+        cacheMisses.incrementAndGet();
+        employee = store.read(record);
+        synchronized (cache) {
+            cache.put(employeeId, employee);
+        }
+        return employee;
+    }
+
+    private void shadow(State state, int employeeId) {
+        if (state.records.recordOf(employeeId) != NO_RECORD) {
+            state.shadowed.add(employeeId);
+            synchronized (cache) {
+                cache.remove(employeeId);
+            }
+        }
+    }
+
+    // The records of one snapshot file, with their positions by id
+    private static final class Records implements Closeable {
+        final BinaryEmployeeStore store; // null when there is no snapshot yet
+        final int baseId; // Id of positions[0]
+        final int[] positions; // Record position in the store for each id from baseId, or NO_RECORD; null if the ids are too sparse
+
+        Records(BinaryEmployeeStore store) {
+            this.store = store;
+            int count = size();
+            if (count == 0) {
+                baseId = 0;
+                positions = new int[0];
+                return;
+            }
+            baseId = store.idAt(0);
+            long span = (long) store.idAt(count - 1) - baseId + 1;
+            if (span > 4L * count + 1024) {
+                positions = null; // Far from dense, so look ids up by binary search in the file instead
+                return;
+            }
+            positions = new int[(int) span];
+            Arrays.fill(positions, NO_RECORD);
+            for (int i = 0; i < count; i++) {
+                positions[store.idAt(i) - baseId] = i;
+            }
+        }
+
+        int size() {
+            return store == null ? 0 : store.size();
+        }
+
+        int recordOf(int employeeId) {
+            if (store == null) return NO_RECORD;
+            if (positions != null) {
+                long slot = (long) employeeId - baseId;
+                return slot < 0 || slot >= positions.length ? NO_RECORD : positions[(int) slot];
+            }
+            int position = firstRecordAbove(employeeId - 1L);
+            return position < store.size() && store.idAt(position) == employeeId ? position : NO_RECORD;
+        }
+
+        // Position of the first record with an id above the given one
+        int firstRecordAbove(long employeeId) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (store.idAt(mid) <= employeeId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (store != null) {
+                store.close();
+            }
+        }
+    }
+
+    // A snapshot file's records and the changes made since it was written
+    private static final class State {
+        final Records records;
+        final ConcurrentNavigableMap<Integer, Employee> changed; // Current version of changed or added employees
+        final Set<Integer> shadowed; // Snapshot records that are out of date
+
+        State(Records records, ConcurrentNavigableMap<Integer, Employee> changed, Set<Integer> shadowed) {
+            this.records = records;
+            this.changed = changed;
+            this.shadowed = shadowed;
+        }
+    }
+
+    // Employees with ids above a cursor in id order: the snapshot records merged with the changed
+    // employees, skipping records that are out of date
+    private static class Scan implements Iterator<Employee> {
+        private final BinaryEmployeeStore store;
+        private final int end;
+        private final Set<Integer> shadowed;
+        private final Iterator<Employee> changedAfter;
+        private int record;
+        private Employee nextChanged;
+        private Employee nextEmployee;
+
+        Scan(State state, int cursor) {
+            store = state.records.store;
+            end = state.records.size();
+            shadowed = state.shadowed;
+            record = state.records.firstRecordAbove(cursor);
+            changedAfter = state.changed.tailMap(cursor, false).values().iterator();
+            nextChanged = changedAfter.hasNext() ? changedAfter.next() : null;
+            nextEmployee = advance();
+        }
+
+        private Employee advance() {
+            while (record < end) {
+                int recordId = store.idAt(record);
+                if (nextChanged != null && nextChanged.getEmployeeId() <= recordId) {
+                    break;
+                }
+                if (shadowed.contains(recordId)) {
+                    record++;
+                    continue;
+                }
+                return store.read(record++);
+            }
+            if (nextChanged == null) return null;
+            Employee employee = nextChanged;
+            if (record < end && store.idAt(record) == employee.getEmployeeId()) {
+                record++; // The changed employee replaces this record
+            }
+            nextChanged = changedAfter.hasNext() ? changedAfter.next() : null;
+            return employee;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextEmployee != null;
+        }
+
+        @Override
+        public Employee next() {
+            if (nextEmployee == null) {
+                throw new NoSuchElementException();
+            }
+            Employee employee = nextEmployee;
+            nextEmployee = advance();
+            return employee;
+        }
+    }
+
+    // The employees at the moment capture() ran, however the index changes afterwards
+    private static final class Captured extends AbstractCollection<Employee> {
+        private final State state;
+        private final int size;
+
+        Captured(State current, int size) {
+            this.state = new State(current.records, new ConcurrentSkipListMap<>(current.changed), new HashSet<>(current.shadowed));
+            this.size = size;
+        }
+
+        @Override
+        public Iterator<Employee> iterator() {
+            return new Scan(state, Integer.MIN_VALUE);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private class Values extends AbstractCollection<Employee> {
+        @Override
+        public Iterator<Employee> iterator() {
+            return new Scan(state, Integer.MIN_VALUE);
+        }
+
+        @Override
+        public int size() {
+            return size.get();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package payroll;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Money class for amounts held as a long number of cents. Sums of cents are exact, so totals come
+// out the same whatever order they are added in, and no object is created on the pay, tax or
+// payslip paths. Rounding rules:
+//  - an amount given in currency units (salary, hourly rate) is rounded to the nearest cent,
+//    halves away from zero;
+//  - a rate (commission, tax) is a fraction kept in millionths, rounded the same way. Rates with
+//    more decimals than that are refused where they are entered (isExactRate), so rounding only
+//    ever applies to values read back from stored employees;
+//  - an amount times a rate is worked out exactly in integers and rounded once to the nearest
+//    cent, halves away from zero.
+// Amounts and pay are kept within MAX_CENTS either way, so that taxing them cannot overflow; amounts
+// and pay beyond it are refused where they are entered.
+final class Money {
+    static final long CENTS_PER_UNIT = 100;
+    static final long RATE_SCALE = 1_000_000; // A rate of 1 (100%)
+    // Largest amount: times a rate of up to 1, in millionths, it still fits a long with room to round
+    static final long MAX_CENTS = Long.MAX_VALUE / RATE_SCALE;
+
+    private Money() {
+    }
+
+    // Cents for an amount in currency units
+    static long ofUnits(double amount) {
+        if (!isAmount(amount)) {
+            throw new IllegalArgumentException("Amount out of range: " + amount);
+        }
+        return round(amount, CENTS_PER_UNIT, 2);
+    }
+
+    // Whether ofUnits takes an amount: a number of units within MAX_CENTS either way
+    static boolean isAmount(double amount) {
+        return Math.abs(amount * CENTS_PER_UNIT) <= MAX_CENTS; // False for NaN and infinities too
+    }
+
+    // Whether an amount times a whole number, such as hours worked, is still within MAX_CENTS
+    static boolean isAmountTimes(long cents, long times) {
+        return times == 0 || Math.abs(cents) <= MAX_CENTS / Math.abs(times);
+    }
+
+    // Whether applyRate takes an amount and rate: their exact product, rounded, stays within MAX_CENTS
+    static boolean isAmountAtRate(long cents, long rateMicros) {
+        return rateMicros == 0 || Math.abs(cents) <= MAX_CENTS * RATE_SCALE / Math.abs(rateMicros);
+    }
+
+    static double toUnits(long cents) {
+        return (double) cents / CENTS_PER_UNIT;
+    }
+
+    // Millionths for a rate given as a fraction, e.g. 0.07 for 7%
+    static long rateOf(double rate) {
+        return round(rate, RATE_SCALE, 6);
+    }
+
+    // Whether rateOf keeps a rate as given, i.e. it has at most 6 decimal places
+    static boolean isExactRate(double rate) {
+        return Math.abs(rate * RATE_SCALE) < Long.MAX_VALUE && toRate(rateOf(rate)) == rate;
+    }
+
+    static double toRate(long rateMicros) {
+        return (double) rateMicros / RATE_SCALE;
+    }
+
+    // An amount times a rate, rounded to cents
+    static long applyRate(long cents, long rateMicros) {
+        return roundMicros(Math.multiplyExact(cents, rateMicros));
+    }
+
+    // Cents for an exact product of cents and millionths
+    static long roundMicros(long centMicros) {
+        long half = RATE_SCALE / 2;
+        return centMicros >= 0 ? (centMicros + half) / RATE_SCALE : -((-centMicros + half) / RATE_SCALE);
+    }
+
+    static String format(long cents) {
+        return append(new StringBuilder(24), cents).toString();
+    }
+
+    // Write the amount as units with two decimals, e.g. 1234.50
+    static StringBuilder append(StringBuilder out, long cents) {
+        long units = Math.abs(cents / CENTS_PER_UNIT);
+        long fraction = Math.abs(cents % CENTS_PER_UNIT);
+        if (cents < 0) out.append('-');
+        out.append(units).append('.');
+        if (fraction < 10) out.append('0');
+        return out.append(fraction);
+    }
+
+    // Write a rate as a percentage without trailing zeros, e.g. 7.5%
+    static StringBuilder appendPercent(StringBuilder out, long rateMicros) {
+        if (rateMicros < 0) {
+            out.append('-');
+            rateMicros = -rateMicros;
+        }
+        long perPercent = RATE_SCALE / 100;
+        out.append(rateMicros / perPercent);
+        long fraction = rateMicros % perPercent;
+        if (fraction != 0) {
+            out.append('.');
+            for (long digit = perPercent / 10; fraction != 0; digit /= 10) {
+                out.append(fraction / digit);
+                fraction %= digit;
+            }
+        }
+        return out.append('%');
+    }
+
+    private static long round(double value, long scale, int decimals) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Not an amount: " + value);
+        }
+        double scaled = value * scale;
+        if (Math.abs(scaled) >= Long.MAX_VALUE) {
+            throw new IllegalArgumentException("Out of range: " + value);
+        }
+        double fraction = Math.abs(scaled - (long) scaled);
+        if (Math.abs(fraction - 0.5) < 1e-6) {
+            // Near a half the binary value may sit on either side of it; round the decimal as written
+            return BigDecimal.valueOf(value).setScale(decimals, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        }
+        return scaled >= 0 ? (long) (scaled + 0.5) : -(long) (-scaled + 0.5);
+    }
+}
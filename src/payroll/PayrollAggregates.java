@@ -0,0 +1,120 @@
+package payroll;
+
+import java.util.Collection;
+
+// PayrollAggregates class for keeping payroll totals up to date as employees change, per
+// EmployeeType and overall. Adding, removing or changing an employee applies the difference it
+// makes to gross, tax and net, so reading the totals never touches the employees. Amounts are
+// cents, so the running totals stay exactly equal to a full recompute. All methods are
+// synchronized, so sessions can share one instance.
+class PayrollAggregates {
+    private final PayrollTotals[] byType = new PayrollTotals[EmployeeType.values().length];
+    private final PayrollTotals overall = new PayrollTotals();
+
+    public PayrollAggregates() {
+        for (EmployeeType type : EmployeeType.values()) {
+            byType[type.ordinal()] = new PayrollTotals();
+        }
+    }
+
+    public synchronized void add(Employee employee) {
+        apply(employee, 1);
+    }
+
+    public synchronized void remove(Employee employee) {
+        apply(employee, -1);
+    }
+
+    // The stored employee was replaced by a changed copy; either side may be null. Both pays and taxes
+    // are worked out before either is applied, so if one cannot be the totals are left as they were.
+    public synchronized void replace(Employee previous, Employee changed) {
+        long previousPay = 0;
+        long previousTax = 0;
+        long changedPay = 0;
+        long changedTax = 0;
+        if (previous != null) {
+            previousPay = previous.calculatePay();
+            previousTax = TaxCalculator.calculateTax(previous, previousPay);
+        }
+        if (changed != null) {
+            changedPay = changed.calculatePay();
+            changedTax = TaxCalculator.calculateTax(changed, changedPay);
+        }
+        if (previous != null) apply(previous.getEmployeeType(), previousPay, previousTax, -1);
+        if (changed != null) apply(changed.getEmployeeType(), changedPay, changedTax, 1);
+    }
+
+    // Start over from the given employees
+    public synchronized void reset(Collection<Employee> employees) {
+        for (PayrollTotals totals : byType) {
+            clear(totals);
+        }
+        clear(overall);
+        for (Employee employee : employees) {
+            apply(employee, 1);
+        }
+    }
+
+    public synchronized PayrollTotals totals() {
+        return copy(overall);
+    }
+
+    public synchronized PayrollTotals totals(EmployeeType type) {
+        return copy(byType[type.ordinal()]);
+    }
+
+    // Compare the running totals with a full recompute over the employees; returns the
+    // differences found, or an empty string if they agree
+    public synchronized String check(Collection<Employee> employees) {
+        PayrollAggregates expected = new PayrollAggregates();
+        expected.reset(employees);
+
+        StringBuilder differences = new StringBuilder();
+        for (EmployeeType type : EmployeeType.values()) {
+            compare(type.toString(), byType[type.ordinal()], expected.byType[type.ordinal()], differences);
+        }
+        compare("TOTAL", overall, expected.overall, differences);
+        return differences.toString();
+    }
+
+    private void apply(Employee employee, int sign) {
+        long pay = employee.calculatePay();
+        apply(employee.getEmployeeType(), pay, TaxCalculator.calculateTax(employee, pay), sign);
+    }
+
+    private void apply(EmployeeType type, long pay, long tax, int sign) {
+        applyTo(byType[type.ordinal()], pay, tax, sign);
+        applyTo(overall, pay, tax, sign);
+    }
+
+    private static void applyTo(PayrollTotals totals, long pay, long tax, int sign) {
+        totals.gross += sign * pay;
+        totals.tax += sign * tax;
+        totals.net += sign * (pay - tax);
+        totals.employees += sign;
+    }
+
+    private static void compare(String label, PayrollTotals actual, PayrollTotals expected, StringBuilder differences) {
+        if (actual.employees != expected.employees || actual.gross != expected.gross
+                || actual.tax != expected.tax || actual.net != expected.net) {
+            differences.append(String.format("%s: running %d employees, gross %s, tax %s, net %s;"
+                            + " recomputed %d employees, gross %s, tax %s, net %s%n",
+                    label, actual.employees, Money.format(actual.gross), Money.format(actual.tax),
+                    Money.format(actual.net), expected.employees, Money.format(expected.gross),
+                    Money.format(expected.tax), Money.format(expected.net)));
+        }
+    }
+
+    private static void clear(PayrollTotals totals) {
+        totals.gross = 0;
+        totals.tax = 0;
+        totals.net = 0;
+        totals.employees = 0;
+    }
+
+    private static PayrollTotals copy(PayrollTotals totals) {
+        PayrollTotals copy = new PayrollTotals();
+        copy.add(totals);
+        return copy;
+    }
+}
@@ -0,0 +1,688 @@
+package payroll;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// PayrollHttpServer class for driving the payroll system over HTTP with JSON, e.g. from HR systems,
+// alongside or instead of the console menu. It is built on the JDK's com.sun.net.httpserver: one
+// dispatcher thread takes care of every open connection, and each request runs on its own virtual
+// thread where the JDK has them (21 and later) or on a fixed pool of platform threads otherwise.
+//
+//   POST   /api/login              {"username": ..., "password": ...} -> {"token": ...}
+//   POST   /api/logout
+//   GET    /api/employees          ?cursor=<nextCursor>&limit=<n> -> {"employees": [...], "nextCursor": n or null}
+//   POST   /api/employees          {"name", "type"} and "salary", or "hourlyRate" and "hoursWorked",
+//                                  or "commissionRate" and "totalSales" -> the new employee
+//   GET    /api/employees/<id>
+//   PATCH  /api/employees/<id>     {"<attribute>": value, ...}, attributes as for updateDetails; all or none
+//   DELETE /api/employees/<id>
+//   GET    /api/payroll/totals     running totals, overall and per type
+//   GET    /api/payslips/<id>      one pay stub, text/plain
+//   GET    /api/payslips           every pay stub in id order, text/plain, streamed a page of employees
+//                                  at a time (a snapshot of one run is what the payslip archive is for)
+//
+// Every call but login needs "Authorization: Bearer <token>" with a token from login. Amounts are
+// currency units with two decimals and rates are fractions (0.1 is 10%). Errors come back as
+// {"error": ...} with status 400, 401, 404, 405, 413 or 500. Changes are queued for the journal the
+// same way the menu's are. There is no TLS, so by default the server only listens on localhost.
+class PayrollHttpServer implements Closeable {
+    static final int DEFAULT_PORT = 8080;
+    static final int DEFAULT_PLATFORM_THREADS = 64; // Only used where virtual threads are missing
+    static final int DEFAULT_BACKLOG = 4096;
+    // The JDK server closes keep-alive connections beyond this many idle ones (200 unless set), which
+    // would make clients that hold thousands of connections open reconnect all the time
+    private static final int MAX_IDLE_CONNECTIONS = 20_000;
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+    private static final int MAX_PAGE_LIMIT = 1000;
+    private static final int STREAM_PAGE_SIZE = 1024; // Employees rendered at a time when streaming payslips
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final String TEXT = "text/plain; charset=utf-8";
+
+    private final PayrollSystem system;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LatencyHistogram requestTimes;
+    private final LongAdder clientErrors;
+    private final LongAdder serverErrors;
+
+    public PayrollHttpServer(PayrollSystem system, InetSocketAddress address, int backlog, int platformThreads) throws IOException {
+        if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null) {
+            System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(MAX_IDLE_CONNECTIONS));
+        }
+        // The server writes the headers and the body of a response separately; with Nagle's algorithm on,
+        // the body then waits for the client's delayed ACK of the headers, about 40 ms a request
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.system = system;
+        PayrollMetrics metrics = system.getMetrics();
+        requestTimes = metrics.timer("http.request");
+        clientErrors = metrics.counter("http.clientErrors");
+        serverErrors = metrics.counter("http.serverErrors");
+        executor = newRequestExecutor(platformThreads);
+        server = HttpServer.create(address, backlog);
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Stop taking requests and give the running ones a second to finish
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // A virtual thread per request where the JDK has them. This build targets Java 17, which has not,
+    // so the factory is looked up at run time and a fixed pool of platform threads stands in for it.
+    static ExecutorService newRequestExecutor(int platformThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threads = new AtomicInteger();
+            return Executors.newFixedThreadPool(platformThreads, task -> {
+                Thread thread = new Thread(task, "payroll-http-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handle(HttpExchange exchange) {
+        long start = System.nanoTime();
+        try {
+            String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+            String method = exchange.getRequestMethod();
+            if (path.length == 1 && path[0].equals("login")) {
+                login(exchange, method);
+                return;
+            }
+            String token = bearerToken(exchange);
+            if (system.authenticate(token) == null) {
+                throw new HttpError(401, "Log in first and send the token as \"Authorization: Bearer <token>\"");
+            }
+            switch (path[0]) {
+                case "logout":
+                    requireMethod(method, "POST", path.length == 1);
+                    system.logout(token);
+                    sendEmpty(exchange);
+                    break;
+                case "employees":
+                    employees(exchange, method, path);
+                    break;
+                case "payroll":
+                    requireMethod(method, "GET", path.length == 2 && path[1].equals("totals"));
+                    totals(exchange);
+                    break;
+                case "payslips":
+                    payslips(exchange, method, path);
+                    break;
+                default:
+                    throw new HttpError(404, "No such resource");
+            }
+        } catch (HttpError e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            // The reason can name files and internals, so it goes to the console and not to the client
+            System.out.println("Error serving " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + ": " + e);
+            sendError(exchange, 500, "Internal server error");
+        } finally {
+            exchange.close();
+            requestTimes.recordSince(start);
+        }
+    }
+
+    private void login(HttpExchange exchange, String method) throws IOException, HttpError {
+        requireMethod(method, "POST", true);
+        Map<String, Object> body = readBody(exchange);
+        String token = system.login(requireString(body, "username"), requireString(body, "password"));
+        if (token == null) {
+            throw new HttpError(401, "Invalid username or password");
+        }
+        StringBuilder out = new StringBuilder(64).append("{\"token\":");
+        appendString(out, token).append('}');
+        send(exchange, 200, JSON, out);
+    }
+
+    private void employees(HttpExchange exchange, String method, String[] path) throws IOException, HttpError {
+        if (path.length == 1) {
+            switch (method) {
+                case "GET":
+                    listEmployees(exchange);
+                    return;
+                case "POST":
+                    Employee employee = newEmployee(readBody(exchange));
+                    system.createEmployee(employee);
+                    send(exchange, 201, JSON, appendEmployee(new StringBuilder(256), employee));
+                    return;
+                default:
+                    throw new HttpError(405, "Use GET or POST");
+            }
+        }
+        if (path.length != 2) throw new HttpError(404, "No such resource");
+        int employeeId = parseId(path[1]);
+        switch (method) {
+            case "GET": {
+                Employee employee = system.getEmployee(employeeId);
+                if (employee == null) throw notFound(employeeId);
+                send(exchange, 200, JSON, appendEmployee(new StringBuilder(256), employee));
+                return;
+            }
+            case "PATCH": {
+                Map<String, Object> changes = readBody(exchange);
+                if (changes.isEmpty()) throw new IllegalArgumentException("Nothing to change");
+                if (changes.get("name") instanceof String && ((String) changes.get("name")).isBlank()) {
+                    throw new IllegalArgumentException("name must not be blank"); // As for POST
+                }
+                Employee employee = system.updateEmployee(employeeId, changes);
+                if (employee == null) throw notFound(employeeId);
+                send(exchange, 200, JSON, appendEmployee(new StringBuilder(256), employee));
+                return;
+            }
+            case "DELETE":
+                if (!system.deleteEmployee(employeeId)) throw notFound(employeeId);
+                sendEmpty(exchange);
+                return;
+            default:
+                throw new HttpError(405, "Use GET, PATCH or DELETE");
+        }
+    }
+
+    private void listEmployees(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange);
+        int cursor = query.containsKey("cursor") ? parseInt(query.get("cursor"), "cursor") : EmployeePage.START;
+        int limit = query.containsKey("limit") ? parseInt(query.get("limit"), "limit") : DEFAULT_PAGE_LIMIT;
+        if (limit <= 0 || limit > MAX_PAGE_LIMIT) {
+            throw new IllegalArgumentException("limit must be from 1 to " + MAX_PAGE_LIMIT);
+        }
+        EmployeePage page = system.listEmployees(cursor, limit);
+        StringBuilder out = new StringBuilder(64 + page.getEmployees().size() * 256).append("{\"employees\":[");
+        boolean first = true;
+        for (Employee employee : page.getEmployees()) {
+            if (!first) out.append(',');
+            appendEmployee(out, employee);
+            first = false;
+        }
+        out.append("],\"nextCursor\":");
+        if (page.hasMore()) {
+            out.append(page.getNextCursor());
+        } else {
+            out.append("null");
+        }
+        send(exchange, 200, JSON, out.append('}'));
+    }
+
+    private void totals(HttpExchange exchange) throws IOException {
+        StringBuilder out = new StringBuilder(512);
+        appendTotals(out, system.getPayrollTotals());
+        out.setLength(out.length() - 1);
+        out.append(",\"byType\":{");
+        for (EmployeeType type : EmployeeType.values()) {
+            if (type.ordinal() > 0) out.append(',');
+            appendTotals(out.append('"').append(type.name()).append("\":"), system.getPayrollTotals(type));
+        }
+        send(exchange, 200, JSON, out.append("}}"));
+    }
+
+    private void payslips(HttpExchange exchange, String method, String[] path) throws IOException, HttpError {
+        requireMethod(method, "GET", path.length <= 2);
+        if (path.length == 2) {
+            int employeeId = parseId(path[1]);
+            Employee employee = system.getEmployee(employeeId);
+            if (employee == null) throw notFound(employeeId);
+            send(exchange, 200, TEXT, new StringBuilder(employee.generatePayStub()));
+            return;
+        }
+        // Length unknown up front, so the response is sent in chunks as the pages are rendered
+        exchange.getResponseHeaders().set("Content-Type", TEXT);
+        exchange.sendResponseHeaders(200, 0);
+        String separator = System.lineSeparator();
+        StringBuilder text = new StringBuilder(STREAM_PAGE_SIZE * 320);
+        try (OutputStream out = new BufferedOutputStream(exchange.getResponseBody(), 64 * 1024)) {
+            int cursor = EmployeePage.START;
+            EmployeePage page;
+            do {
+                page = system.listEmployees(cursor, STREAM_PAGE_SIZE);
+                text.setLength(0);
+                for (Employee employee : page.getEmployees()) {
+                    employee.appendPayStub(text);
+                    text.append(separator);
+                }
+                out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+                cursor = page.getNextCursor();
+            } while (page.hasMore());
+        }
+    }
+
+    private static Employee newEmployee(Map<String, Object> body) {
+        String name = requireString(body, "name");
+        if (name.isBlank()) throw new IllegalArgumentException("name must not be blank");
+        String problem = Employee.nameProblem(name);
+        if (problem != null) throw new IllegalArgumentException("name " + problem);
+        EmployeeType type;
+        try {
+            type = EmployeeType.valueOf(requireString(body, "type").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("type must be SALARIED, HOURLY or COMMISSIONED");
+        }
+        switch (type) {
+            case SALARIED: {
+                requireOnly(body, "name", "type", "salary");
+                double salary = requireAmount(body, "salary");
+                return new SalariedEmployee(EmployeeIdGenerator.generateId(), name, salary);
+            }
+            case HOURLY: {
+                requireOnly(body, "name", "type", "hourlyRate", "hoursWorked");
+                double hourlyRate = requireAmount(body, "hourlyRate");
+                int hoursWorked = requireWholeNumber(body, "hoursWorked");
+                return requirePayInRange(new HourlyEmployee(EmployeeIdGenerator.generateId(), name, hourlyRate, hoursWorked));
+            }
+            default: {
+                requireOnly(body, "name", "type", "commissionRate", "totalSales");
+                double commissionRate = requireNumber(body, "commissionRate").doubleValue();
+                if (!Money.isExactRate(commissionRate)) {
+                    throw new IllegalArgumentException("commissionRate must have at most 6 decimal places");
+                }
+                int totalSales = requireWholeNumber(body, "totalSales");
+                return requirePayInRange(new CommissionedEmployee(EmployeeIdGenerator.generateId(), name, commissionRate, totalSales));
+            }
+        }
+    }
+
+    static StringBuilder appendEmployee(StringBuilder out, Employee employee) {
+        long pay = employee.calculatePay();
+        long tax = TaxCalculator.calculateTax(employee, pay);
+        out.append("{\"id\":").append(employee.getEmployeeId()).append(",\"name\":");
+        appendString(out, employee.getName()).append(",\"type\":\"").append(employee.getEmployeeType().name()).append('"');
+        if (employee instanceof SalariedEmployee) {
+            Money.append(out.append(",\"salary\":"), ((SalariedEmployee) employee).getSalaryCents());
+        } else if (employee instanceof HourlyEmployee) {
+            HourlyEmployee hourly = (HourlyEmployee) employee;
+            Money.append(out.append(",\"hourlyRate\":"), hourly.getHourlyRateCents())
+                    .append(",\"hoursWorked\":").append(hourly.getHoursWorked());
+        } else if (employee instanceof CommissionedEmployee) {
+            CommissionedEmployee commissioned = (CommissionedEmployee) employee;
+            out.append(",\"commissionRate\":").append(commissioned.getCommissionRate())
+                    .append(",\"totalSales\":").append(commissioned.getTotalSales());
+        }
+        appendString(out.append(",\"paymentMethod\":"), employee.getPaymentMethod());
+        appendString(out.append(",\"paymentDetails\":"), employee.getPaymentDetails());
+        Money.append(out.append(",\"pay\":"), pay);
+        Money.append(out.append(",\"tax\":"), tax);
+        return Money.append(out.append(",\"net\":"), pay - tax).append('}');
+    }
+
+    private static StringBuilder appendTotals(StringBuilder out, PayrollTotals totals) {
+        out.append("{\"employees\":").append(totals.employees);
+        Money.append(out.append(",\"gross\":"), totals.gross);
+        Money.append(out.append(",\"tax\":"), totals.tax);
+        return Money.append(out.append(",\"net\":"), totals.net).append('}');
+    }
+
+    static StringBuilder appendString(StringBuilder out, String value) {
+        if (value == null) return out.append("null");
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < ' ') {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"');
+    }
+
+    // Request bodies are flat JSON objects: string, number, true, false and null values only.
+    // Whole numbers an int holds come back as Integer and the rest as Double, as
+    // PayrollSystem.changedValue does.
+    static Map<String, Object> parseObject(String text) {
+        JsonReader reader = new JsonReader(text);
+        Map<String, Object> values = reader.object();
+        reader.end();
+        return values;
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException, HttpError {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (body.length > MAX_BODY_BYTES) {
+            throw new HttpError(413, "Request body over " + MAX_BODY_BYTES + " bytes");
+        }
+        return parseObject(new String(body, StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> values = new LinkedHashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return values;
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals < 0) continue;
+            values.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.regionMatches(true, 0, "Bearer ", 0, 7)) return null;
+        return authorization.substring(7).trim();
+    }
+
+    private static void requireMethod(String method, String expected, boolean pathMatches) throws HttpError {
+        if (!pathMatches) throw new HttpError(404, "No such resource");
+        if (!method.equals(expected)) throw new HttpError(405, "Use " + expected);
+    }
+
+    private static String requireString(Map<String, Object> body, String key) {
+        Object value = body.get(key);
+        if (!(value instanceof String)) throw new IllegalArgumentException(key + " must be a string");
+        return (String) value;
+    }
+
+    private static Number requireNumber(Map<String, Object> body, String key) {
+        Object value = body.get(key);
+        if (!(value instanceof Number)) throw new IllegalArgumentException(key + " must be a number");
+        return (Number) value;
+    }
+
+    private static double requireAmount(Map<String, Object> body, String key) {
+        double value = requireNumber(body, key).doubleValue();
+        if (!Money.isAmount(value)) {
+            throw new IllegalArgumentException(key + " must be at most " + Money.format(Money.MAX_CENTS) + " either way");
+        }
+        return value;
+    }
+
+    private static Employee requirePayInRange(Employee employee) {
+        if (!employee.isPayInRange()) {
+            throw new IllegalArgumentException("pay must be at most " + Money.format(Money.MAX_CENTS) + " either way");
+        }
+        return employee;
+    }
+
+    private static int requireWholeNumber(Map<String, Object> body, String key) {
+        Number value = requireNumber(body, key);
+        if (!PayrollSystem.isWholeNumber(value)) {
+            throw new IllegalArgumentException(key + " must be a whole number from " + Integer.MIN_VALUE + " to " + Integer.MAX_VALUE);
+        }
+        return value.intValue();
+    }
+
+    private static void requireOnly(Map<String, Object> body, String... keys) {
+        for (String key : body.keySet()) {
+            boolean known = false;
+            for (String allowed : keys) {
+                known |= allowed.equals(key);
+            }
+            if (!known) throw new IllegalArgumentException("Unexpected field " + key);
+        }
+    }
+
+    private static int parseId(String text) {
+        return parseInt(text, "employee id");
+    }
+
+    private static int parseInt(String text, String what) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(what + " must be a whole number");
+        }
+    }
+
+    private static HttpError notFound(int employeeId) {
+        return new HttpError(404, "No employee with id " + employeeId);
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, StringBuilder body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sendEmpty(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) {
+        if (status >= 500) {
+            serverErrors.increment();
+        } else {
+            clientErrors.increment();
+        }
+        if (exchange.getResponseCode() != -1) return; // Failed part way through a response; closing it is all that is left
+        try {
+            send(exchange, status, JSON, appendString(new StringBuilder(64).append("{\"error\":"), message).append('}'));
+        } catch (IOException e) {
+            // The client has gone
+        }
+    }
+
+    // A request that cannot be served, with the status to answer it with
+    private static final class HttpError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+    }
+
+    // Just enough of a JSON reader for flat request objects
+    private static final class JsonReader {
+        private final String text;
+        private int position;
+
+        JsonReader(String text) {
+            this.text = text;
+        }
+
+        Map<String, Object> object() {
+            Map<String, Object> values = new LinkedHashMap<>();
+            expect('{');
+            if (peek() == '}') {
+                position++;
+                return values;
+            }
+            while (true) {
+                skipSpace();
+                String key = string();
+                expect(':');
+                values.put(key, value());
+                char next = next();
+                if (next == '}') return values;
+                if (next != ',') throw error("Expected , or }");
+            }
+        }
+
+        void end() {
+            skipSpace();
+            if (position < text.length()) throw error("Unexpected text after the object");
+        }
+
+        private Object value() {
+            char c = peek();
+            switch (c) {
+                case '"':
+                    return string();
+                case '{':
+                case '[':
+                    throw error("Nested objects and arrays are not supported");
+                case 't':
+                    literal("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    literal("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    literal("null");
+                    return null;
+                default:
+                    return number();
+            }
+        }
+
+        private String string() {
+            if (peek() != '"') throw error("Expected a string");
+            position++;
+            StringBuilder out = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') return out.toString();
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                if (position >= text.length()) break;
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        out.append(escaped);
+                        break;
+                    case 'b':
+                        out.append('\b');
+                        break;
+                    case 'f':
+                        out.append('\f');
+                        break;
+                    case 'n':
+                        out.append('\n');
+                        break;
+                    case 'r':
+                        out.append('\r');
+                        break;
+                    case 't':
+                        out.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) throw error("Bad \\u escape");
+                        try {
+                            out.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Bad \\u escape");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        throw error("Bad escape \\" + escaped);
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        private Number number() {
+            int start = position;
+            boolean whole = true;
+            while (position < text.length()) {
+                char c = text.charAt(position);
+                if (c == '.' || c == 'e' || c == 'E') {
+                    whole = false;
+                } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+                    break;
+                }
+                position++;
+            }
+            String number = text.substring(start, position);
+            try {
+                double value = Double.parseDouble(number);
+                if (Double.isInfinite(value)) throw error("Number out of range: " + number);
+                if (whole && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) return Integer.parseInt(number);
+                return value; // Whole numbers past an int too, for the field's own checks to take or refuse
+            } catch (NumberFormatException e) {
+                throw error(number.isEmpty() ? "Expected a value" : "Bad or out of range number " + number);
+            }
+        }
+
+        private void literal(String word) {
+            if (!text.startsWith(word, position)) throw error("Expected a value");
+            position += word.length();
+        }
+
+        private void expect(char c) {
+            if (next() != c) throw error("Expected " + c);
+        }
+
+        private char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        private char peek() {
+            skipSpace();
+            if (position >= text.length()) throw error("Unexpected end of JSON");
+            return text.charAt(position);
+        }
+
+        private void skipSpace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at offset " + position);
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package payroll;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// PayrollLedger class for keeping every payroll run's per-employee gross, tax and net.
+// Runs are appended to segment files (segment-00001.dat, ...) and a new segment is started once the
+// current one passes SEGMENT_BYTES, so writes are always sequential appends. runs.idx lists every
+// committed run with its pay date, segment, offset and entry count; it is small and held in memory,
+// sorted by pay date, which is the index by period. Within a run the entries are fixed-size and
+// sorted by employee id, which is the index by employee: one employee's entry is found with a binary
+// search of positional reads, and range scans stream one run at a time, so no history is loaded
+// into memory. Layout:
+//   segment entry : employee id (int), 4 pad bytes, gross (long), tax (long), net (long), in cents
+//   runs.idx      : run id (int), pay date (int, epoch day), segment (int), entry count (int),
+//                   offset (long)
+// A run is committed by forcing its entries, then appending and forcing its runs.idx record; bytes
+// of a run that was never committed are cut off the segment when the ledger is opened.
+class PayrollLedger implements Closeable {
+    static final long SEGMENT_BYTES = 256L * 1024 * 1024;
+    private static final int ENTRY_SIZE = 32;
+    private static final int RUN_RECORD_SIZE = 24;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File directory;
+    private final long segmentBytes;
+    private final ReentrantLock writeLock = new ReentrantLock(); // Held by the open RunWriter
+    private final List<RunInfo> runs = new ArrayList<>(); // Sorted by pay date, then run id
+    private final Map<Integer, FileChannel> readers = new HashMap<>();
+    private final ByteBuffer entryBuffer = ByteBuffer.allocate(ENTRY_SIZE); // For lookups
+    private FileChannel index;
+    private int lastRunId;
+    private int lastSegment;
+
+    public PayrollLedger(File directory) {
+        this(directory, SEGMENT_BYTES);
+    }
+
+    public PayrollLedger(File directory, long segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+    // Read runs.idx and cut off anything a crash left behind after the last committed run
+    public synchronized void open() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create ledger directory " + directory);
+        }
+        index = FileChannel.open(new File(directory, "runs.idx").toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long committed = index.size() - index.size() % RUN_RECORD_SIZE;
+        index.truncate(committed);
+
+        ByteBuffer records = ByteBuffer.allocate((int) committed); // One small record per run
+        readFully(index, records, 0);
+        records.flip();
+        long segmentEnd = 0;
+        while (records.remaining() >= RUN_RECORD_SIZE) {
+            RunInfo run = new RunInfo(records.getInt(), LocalDate.ofEpochDay(records.getInt()),
+                    records.getInt(), records.getInt(), records.getLong());
+            insert(run);
+            lastRunId = Math.max(lastRunId, run.runId);
+            if (run.segment > lastSegment || (run.segment == lastSegment && run.end() > segmentEnd)) {
+                lastSegment = run.segment;
+                segmentEnd = run.end();
+            }
+        }
+        lastSegment = Math.max(lastSegment, 1);
+        index.position(committed);
+
+        truncate(segmentFile(lastSegment), segmentEnd); // Entries of a run that never committed
+        truncate(segmentFile(lastSegment + 1), 0); // Started by such a run
+    }
+
+    // Start writing a run for the pay date. Only one run is written at a time; the caller holds the
+    // ledger until the returned writer is committed or closed.
+    public RunWriter beginRun(LocalDate payDate) throws IOException {
+        writeLock.lock();
+        try {
+            int segment;
+            synchronized (this) {
+                segment = lastSegment;
+                if (segmentFile(segment).length() >= segmentBytes) {
+                    segment = ++lastSegment;
+                }
+            }
+            return new RunWriter(payDate, segment);
+        } catch (IOException | RuntimeException e) {
+            writeLock.unlock();
+            throw e;
+        }
+    }
+
+    // Every entry of one employee with a pay date in [from, to], oldest first
+    public synchronized List<LedgerEntry> history(int employeeId, LocalDate from, LocalDate to) throws IOException {
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (int i = firstRunOnOrAfter(from); i < runs.size() && !runs.get(i).payDate.isAfter(to); i++) {
+            RunInfo run = runs.get(i);
+            long position = find(run, employeeId);
+            if (position >= 0) {
+                entries.add(readEntry(run, position));
+            }
+        }
+        return entries;
+    }
+
+    // Stream every entry with a pay date in [from, to], run by run, in pay date order
+    public synchronized void scan(LocalDate from, LocalDate to, Consumer<LedgerEntry> consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE - BUFFER_SIZE % ENTRY_SIZE);
+        for (int i = firstRunOnOrAfter(from); i < runs.size() && !runs.get(i).payDate.isAfter(to); i++) {
+            RunInfo run = runs.get(i);
+            FileChannel channel = reader(run.segment);
+            long position = run.offset;
+            long end = run.end();
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                readFully(channel, buffer, position);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    int employeeId = buffer.getInt();
+                    buffer.getInt();
+                    consumer.accept(new LedgerEntry(run.runId, run.payDate, employeeId,
+                            buffer.getLong(), buffer.getLong(), buffer.getLong()));
+                }
+                position += buffer.limit();
+            }
+        }
+    }
+
+    public synchronized int getRuns() {
+        return runs.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock(); // Let a run being written finish first
+        try {
+            synchronized (this) {
+                for (FileChannel reader : readers.values()) {
+                    reader.close();
+                }
+                readers.clear();
+                if (index != null) {
+                    index.close();
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private synchronized void commit(RunInfo run) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RUN_RECORD_SIZE);
+        record.putInt(run.runId).putInt((int) run.payDate.toEpochDay()).putInt(run.segment)
+                .putInt(run.entries).putLong(run.offset).flip();
+        while (record.hasRemaining()) {
+            index.write(record);
+        }
+        index.force(false);
+        insert(run);
+        lastRunId = run.runId;
+    }
+
+    private synchronized int nextRunId() {
+        return lastRunId + 1;
+    }
+
+    private void insert(RunInfo run) {
+        int i = runs.size();
+        while (i > 0 && compare(runs.get(i - 1), run) > 0) {
+            i--; // Runs nearly always arrive in pay date order, so this rarely moves
+        }
+        runs.add(i, run);
+    }
+
+    private static int compare(RunInfo a, RunInfo b) {
+        int byDate = a.payDate.compareTo(b.payDate);
+        return byDate != 0 ? byDate : Integer.compare(a.runId, b.runId);
+    }
+
+    private int firstRunOnOrAfter(LocalDate date) {
+        int low = 0;
+        int high = runs.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (runs.get(middle).payDate.isBefore(date)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Position of the employee's entry in the run, or -1
+    private long find(RunInfo run, int employeeId) throws IOException {
+        FileChannel channel = reader(run.segment);
+        int low = 0;
+        int high = run.entries - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long position = run.offset + (long) middle * ENTRY_SIZE;
+            entryBuffer.clear().limit(4);
+            readFully(channel, entryBuffer, position);
+            int id = entryBuffer.getInt(0);
+            if (id < employeeId) {
+                low = middle + 1;
+            } else if (id > employeeId) {
+                high = middle - 1;
+            } else {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private LedgerEntry readEntry(RunInfo run, long position) throws IOException {
+        entryBuffer.clear();
+        readFully(reader(run.segment), entryBuffer, position);
+        entryBuffer.flip();
+        int employeeId = entryBuffer.getInt();
+        entryBuffer.getInt();
+        return new LedgerEntry(run.runId, run.payDate, employeeId,
+                entryBuffer.getLong(), entryBuffer.getLong(), entryBuffer.getLong());
+    }
+
+    private FileChannel reader(int segment) throws IOException {
+        FileChannel reader = readers.get(segment);
+        if (reader == null) {
+            reader = FileChannel.open(segmentFile(segment).toPath(), StandardOpenOption.READ);
+            readers.put(segment, reader);
+        }
+        return reader;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new EOFException("Ledger segment ends inside a run");
+            position += read;
+        }
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        if (file.length() <= length) return;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        }
+    }
+
+    private File segmentFile(int segment) {
+        return new File(directory, String.format("segment-%05d.dat", segment));
+    }
+
+    // Appends one run's entries to its segment; entries must come in ascending employee id order
+    final class RunWriter implements Closeable {
+        private final LocalDate payDate;
+        private final int segment;
+        private final FileChannel channel;
+        private final long offset;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE - BUFFER_SIZE % ENTRY_SIZE);
+        private int entries;
+        private int lastEmployeeId = Integer.MIN_VALUE;
+        private boolean done;
+
+        private RunWriter(LocalDate payDate, int segment) throws IOException {
+            this.payDate = payDate;
+            this.segment = segment;
+            this.channel = FileChannel.open(segmentFile(segment).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            this.offset = channel.size();
+            channel.position(offset);
+        }
+
+        public void add(int employeeId, long gross, long tax) throws IOException {
+            if (employeeId <= lastEmployeeId) {
+                throw new IllegalArgumentException("Ledger entries must be in ascending employee id order: " + employeeId);
+            }
+            lastEmployeeId = employeeId;
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.putInt(employeeId).putInt(0).putLong(gross).putLong(tax).putLong(gross - tax);
+            entries++;
+        }
+
+        public int getEntries() {
+            return entries;
+        }
+
+        // Make the run durable and visible to queries
+        public void commit() throws IOException {
+            drain();
+            channel.force(false);
+            PayrollLedger.this.commit(new RunInfo(nextRunId(), payDate, segment, entries, offset));
+            done = true;
+        }
+
+        // Without commit() the run's entries are cut off again
+        @Override
+        public void close() throws IOException {
+            try {
+                if (!done) {
+                    channel.truncate(offset);
+                }
+                channel.close();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    private static final class RunInfo {
+        final int runId;
+        final LocalDate payDate;
+        final int segment;
+        final int entries;
+        final long offset;
+
+        RunInfo(int runId, LocalDate payDate, int segment, int entries, long offset) {
+            this.runId = runId;
+            this.payDate = payDate;
+            this.segment = segment;
+            this.entries = entries;
+            this.offset = offset;
+        }
+
+        long end() {
+            return offset + (long) entries * ENTRY_SIZE;
+        }
+    }
+}
+
+// One employee's pay in one payroll run, in cents
+class LedgerEntry {
+    private final int runId;
+    private final LocalDate payDate;
+    private final int employeeId;
+    private final long gross;
+    private final long tax;
+    private final long net;
+
+    LedgerEntry(int runId, LocalDate payDate, int employeeId, long gross, long tax, long net) {
+        this.runId = runId;
+        this.payDate = payDate;
+        this.employeeId = employeeId;
+        this.gross = gross;
+        this.tax = tax;
+        this.net = net;
+    }
+
+    public int getRunId() {
+        return runId;
+    }
+
+    public LocalDate getPayDate() {
+        return payDate;
+    }
+
+    public int getEmployeeId() {
+        return employeeId;
+    }
+
+    public long getGross() {
+        return gross;
+    }
+
+    public long getTax() {
+        return tax;
+    }
+
+    public long getNet() {
+        return net;
+    }
+}
@@ -0,0 +1,295 @@
+package payroll;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// PayrollMetrics class for counting and timing what the payroll system does, by name: counters
+// (operations, failures), latency histograms and gauges read on demand (headcount, file sizes).
+// Recording is lock-free: counters are LongAdders and histograms fixed arrays of atomic buckets, so
+// callers look their counter or histogram up once and keep it in a field; the hot path then costs
+// an increment and, for timings, two System.nanoTime() calls.
+// Everything can be read as text with dump() or through JMX as the MBean payroll:type=Metrics, where
+// each counter and gauge is an attribute and each histogram gives <name>.count, .meanMicros,
+// .p50Micros, .p90Micros, .p99Micros, .p999Micros and .maxMicros.
+class PayrollMetrics {
+    static final String OBJECT_NAME = "payroll:type=Metrics";
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, LatencyHistogram> timers = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private ObjectName registeredName; // Guarded by this
+
+    // The counter with this name, created on first use
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    // The latency histogram with this name, created on first use
+    public LatencyHistogram timer(String name) {
+        return timers.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    // Publish a histogram kept elsewhere (e.g. by EmployeeJournal) under this name
+    public void timer(String name, LatencyHistogram histogram) {
+        timers.put(name, histogram);
+    }
+
+    // A value read each time the metrics are, such as a size or a file length
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    // All metrics as text, one per line, names in alphabetical order within each kind
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append("Counters:\n");
+        counters.forEach((name, counter) -> out.append(String.format("  %-32s %14d%n", name, counter.sum())));
+        out.append("Gauges:\n");
+        gauges.forEach((name, gauge) -> out.append(String.format("  %-32s %14d%n", name, readGauge(gauge))));
+        out.append(String.format("Latencies (microseconds):%n  %-32s %9s %9s %9s %9s %9s %9s %9s%n",
+                "", "count", "mean", "p50", "p90", "p99", "p99.9", "max"));
+        timers.forEach((name, timer) -> {
+            out.append(String.format("  %-32s %9d %9.1f", name, timer.getCount(), timer.getMeanNanos() / 1_000.0));
+            for (double percentile : PERCENTILES) {
+                out.append(String.format(" %9.1f", timer.getPercentileNanos(percentile) / 1_000.0));
+            }
+            out.append(String.format(" %9.1f%n", timer.getMaxNanos() / 1_000.0));
+        });
+        return out.toString();
+    }
+
+    // Make the metrics readable over JMX. A second PayrollSystem in the same JVM gets its own
+    // instance=<n> name rather than replacing the first one's.
+    public synchronized void registerMBean() {
+        if (registeredName != null) return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (int instance = 1; registeredName == null; instance++) {
+                ObjectName name = new ObjectName(instance == 1 ? OBJECT_NAME : OBJECT_NAME + ",instance=" + instance);
+                try {
+                    server.registerMBean(new MetricsMBean(), name);
+                    registeredName = name;
+                } catch (InstanceAlreadyExistsException e) {
+                    // Taken by another instance; try the next name
+                }
+            }
+        } catch (JMException e) {
+            System.out.println("Error registering payroll metrics with JMX: " + e.getMessage());
+        }
+    }
+
+    public synchronized void unregisterMBean() {
+        if (registeredName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (JMException e) {
+            System.out.println("Error unregistering payroll metrics from JMX: " + e.getMessage());
+        }
+        registeredName = null;
+    }
+
+    private static long readGauge(LongSupplier gauge) {
+        try {
+            return gauge.getAsLong();
+        } catch (RuntimeException e) {
+            return -1; // A gauge must never break a dump
+        }
+    }
+
+    // Attribute value by name, or null if there is no such metric
+    private Object read(String attribute) {
+        LongAdder counter = counters.get(attribute);
+        if (counter != null) return counter.sum();
+        LongSupplier gauge = gauges.get(attribute);
+        if (gauge != null) return readGauge(gauge);
+
+        int dot = attribute.lastIndexOf('.');
+        LatencyHistogram timer = dot < 0 ? null : timers.get(attribute.substring(0, dot));
+        if (timer == null) return null;
+        String statistic = attribute.substring(dot + 1);
+        switch (statistic) {
+            case "count":
+                return timer.getCount();
+            case "meanMicros":
+                return timer.getMeanNanos() / 1_000.0;
+            case "maxMicros":
+                return timer.getMaxNanos() / 1_000.0;
+            default:
+                for (int i = 0; i < PERCENTILES.length; i++) {
+                    if (statistic.equals(PERCENTILE_NAMES[i] + "Micros")) {
+                        return timer.getPercentileNanos(PERCENTILES[i]) / 1_000.0;
+                    }
+                }
+                return null;
+        }
+    }
+
+    // Read-only view of the metrics for JMX; the attribute list follows whatever metrics exist when asked
+    private class MetricsMBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Object value = read(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList values = new AttributeList();
+            for (String attribute : attributes) {
+                Object value = read(attribute);
+                if (value != null) {
+                    values.add(new Attribute(attribute, value));
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Payroll metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            if (actionName.equals("dump")) return dump();
+            throw new UnsupportedOperationException(actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String name : counters.keySet()) {
+                attributes.add(new MBeanAttributeInfo(name, "long", "Counter", true, false, false));
+            }
+            for (String name : gauges.keySet()) {
+                attributes.add(new MBeanAttributeInfo(name, "long", "Gauge", true, false, false));
+            }
+            for (String name : timers.keySet()) {
+                attributes.add(new MBeanAttributeInfo(name + ".count", "long", "Operations timed", true, false, false));
+                attributes.add(new MBeanAttributeInfo(name + ".meanMicros", "double", "Mean latency", true, false, false));
+                for (String percentile : PERCENTILE_NAMES) {
+                    attributes.add(new MBeanAttributeInfo(name + "." + percentile + "Micros", "double",
+                            "Latency percentile", true, false, false));
+                }
+                attributes.add(new MBeanAttributeInfo(name + ".maxMicros", "double", "Highest latency", true, false, false));
+            }
+            return new MBeanInfo(PayrollMetrics.class.getName(), "Payroll operation counters, latencies and gauges",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null,
+                    new MBeanOperationInfo[]{new MBeanOperationInfo("dump", "All metrics as text", null,
+                            "java.lang.String", MBeanOperationInfo.INFO)},
+                    null);
+        }
+    }
+}
+
+// LatencyHistogram class for recording durations in nanoseconds with bounded memory, in the manner
+// of an HDR histogram: values below 32 ns get a bucket each, and every power of two above is split
+// into 16 buckets, so any recorded value is known to within 1/16 (about 6%) across the whole range
+// of a long in 960 buckets. Recording is a few bit operations and one atomic increment; reading
+// sums the buckets, so it sees recordings made meanwhile partially.
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // Buckets per power of two
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS; // Values below this are counted exactly
+    private static final int BUCKETS = (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    // Record the time since start, a System.nanoTime() reading
+    public void recordSince(long start) {
+        record(System.nanoTime() - start);
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0; // nanoTime is monotonic, but a caller's arithmetic may not be
+        }
+        buckets.incrementAndGet(bucketOf(nanos));
+        totalNanos.add(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    public double getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) totalNanos.sum() / count;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    // The value below which this percentage of recordings fall, as the top of its bucket; 0 if empty
+    public long getPercentileNanos(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) return (int) value;
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long highestValueIn(int bucket) {
+        if (bucket < LINEAR_LIMIT) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long top = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        long next = (top + 1) << shift;
+        return next <= 0 ? Long.MAX_VALUE : next - 1; // The last bucket ends at Long.MAX_VALUE
+    }
+}
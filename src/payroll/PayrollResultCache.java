@@ -0,0 +1,90 @@
+package payroll;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// PayrollResultCache class for keeping each employee's rendered pay stub between payroll runs, so
+// that a run only renders the stubs of the employees that changed since the last one. Pay and tax
+// are not kept: working them out again costs less than looking them up here.
+// A result is stored with the version of the employee it was computed from and is only handed back
+// for an employee with that same version (see Employee); a stale result is simply overwritten.
+// Like DenseEmployeeIndex, results are kept in an array indexed by (id - baseId). Runs on several
+// threads may store results for different ids at once; the run calls reserve() for the ids of each
+// block before rendering it, so that put() never has to grow the array. Results for ids outside the
+// reserved range are not kept, and neither is one stored while the array is growing: a lost result
+// only costs the next run a recompute.
+class PayrollResultCache {
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Result[].class);
+
+    private volatile Table table = new Table(new Result[0], 0);
+
+    // The result computed from this version of the employee, or null
+    public Result get(Employee employee) {
+        Table table = this.table;
+        int slot = employee.getEmployeeId() - table.baseId;
+        if (slot < 0 || slot >= table.slots.length) return null;
+        Result result = (Result) SLOT.getAcquire(table.slots, slot);
+        return result != null && result.version == employee.getVersion() ? result : null;
+    }
+
+    public void put(int employeeId, Result result) {
+        Table table = this.table;
+        int slot = employeeId - table.baseId;
+        if (slot < 0 || slot >= table.slots.length) return;
+        SLOT.setRelease(table.slots, slot, result);
+    }
+
+    // Drop a removed employee's result, so that it does not take up memory
+    public void remove(int employeeId) {
+        put(employeeId, null);
+    }
+
+    // Grow or rebase the array so that ids from firstId to lastId fit
+    public synchronized void reserve(int firstId, int lastId) {
+        Table table = this.table;
+        if (table.slots.length > 0 && firstId >= table.baseId && lastId - table.baseId < table.slots.length) return;
+        int baseId = table.slots.length == 0 ? firstId : Math.min(firstId, table.baseId);
+        long end = Math.max((long) lastId - baseId + 1, (long) table.baseId - baseId + table.slots.length);
+        long capacity = Math.max(end, (long) table.slots.length * 2);
+        if (end > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Employee ids " + firstId + " to " + lastId + " too far apart for the result cache");
+        }
+        Result[] slots = new Result[(int) Math.min(capacity, MAX_CAPACITY)];
+        if (table.slots.length > 0) {
+            System.arraycopy(table.slots, 0, slots, table.baseId - baseId, table.slots.length);
+        }
+        this.table = new Table(slots, baseId);
+    }
+
+    // Number of employees with a result kept, current or not
+    public int size() {
+        Result[] slots = table.slots;
+        int size = 0;
+        for (Result result : slots) {
+            if (result != null) size++;
+        }
+        return size;
+    }
+
+    // The pay stub as UTF-8, and the version of the employee it was rendered from
+    static final class Result {
+        final long version;
+        final byte[] stub;
+
+        Result(long version, byte[] stub) {
+            this.version = version;
+            this.stub = stub;
+        }
+    }
+
+    private static final class Table {
+        final Result[] slots;
+        final int baseId;
+
+        Table(Result[] slots, int baseId) {
+            this.slots = slots;
+            this.baseId = baseId;
+        }
+    }
+}
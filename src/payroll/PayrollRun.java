@@ -0,0 +1,233 @@
+package payroll;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// PayrollRun class for computing pay, tax and net over all employees on a fork-join pool.
+// The employees are cut into fixed-size partitions. Amounts are whole cents, so the merged totals
+// are exact and do not depend on which thread ran what or in which order partitions were merged.
+class PayrollRun {
+    static final int DEFAULT_PARTITION_SIZE = 10_000;
+    private static final int BATCH_PARTITIONS_PER_THREAD = 4; // When streaming: enough to even out uneven partitions
+
+    private final ForkJoinPool pool;
+    private final int partitionSize;
+
+    public PayrollRun() {
+        this(ForkJoinPool.commonPool(), DEFAULT_PARTITION_SIZE);
+    }
+
+    public PayrollRun(ForkJoinPool pool, int partitionSize) {
+        if (partitionSize <= 0) {
+            throw new IllegalArgumentException("Partition size must be positive");
+        }
+        this.pool = pool;
+        this.partitionSize = partitionSize;
+    }
+
+    // Compute pay, tax and net totals for the employees
+    public PayrollRunResult run(Employee[] employees) {
+        int partitionCount = (employees.length + partitionSize - 1) / partitionSize;
+        PartitionStats[] partitions = new PartitionStats[partitionCount];
+
+        long start = System.nanoTime();
+        PayrollTotals totals = partitionCount == 0
+                ? new PayrollTotals()
+                : pool.invoke(new PartitionTask(employees, employees.length, 0, 0, partitionCount, partitions));
+        long wallNanos = System.nanoTime() - start;
+
+        List<PartitionStats> stats = new ArrayList<>(partitionCount);
+        Collections.addAll(stats, partitions);
+        return new PayrollRunResult(totals, wallNanos, stats);
+    }
+
+    // Compute the totals for employees taken from the collection a batch of partitions at a time, so
+    // that one which reads them from a file as it goes (LazyEmployeeIndex) is never held in memory as
+    // a whole. Each batch keeps the pool busy; the next is read once it is done.
+    public PayrollRunResult run(Collection<Employee> employees) {
+        int batchPartitions = BATCH_PARTITIONS_PER_THREAD * pool.getParallelism();
+        Employee[] batch = new Employee[(int) Math.max(1, Math.min((long) batchPartitions * partitionSize, employees.size()))];
+        Iterator<Employee> source = employees.iterator();
+        List<PartitionStats> stats = new ArrayList<>();
+        PayrollTotals totals = new PayrollTotals();
+
+        long start = System.nanoTime();
+        while (source.hasNext()) {
+            int length = 0;
+            while (length < batch.length && source.hasNext()) {
+                batch[length++] = source.next();
+            }
+            int partitionCount = (length + partitionSize - 1) / partitionSize;
+            PartitionStats[] partitions = new PartitionStats[partitionCount];
+            totals.add(pool.invoke(new PartitionTask(batch, length, stats.size(), 0, partitionCount, partitions)));
+            Collections.addAll(stats, partitions);
+        }
+        long wallNanos = System.nanoTime() - start;
+        return new PayrollRunResult(totals, wallNanos, stats);
+    }
+
+    private class PartitionTask extends RecursiveTask<PayrollTotals> {
+        private static final long serialVersionUID = 1L;
+
+        private final Employee[] employees;
+        private final int length; // Employees in use, from the start of the array
+        private final int numberBase; // Number of the run's partition that is partitions[0], for the stats
+        private final int firstPartition;
+        private final int endPartition; // Exclusive
+        private final PartitionStats[] partitions;
+
+        PartitionTask(Employee[] employees, int length, int numberBase, int firstPartition, int endPartition,
+                      PartitionStats[] partitions) {
+            this.employees = employees;
+            this.length = length;
+            this.numberBase = numberBase;
+            this.firstPartition = firstPartition;
+            this.endPartition = endPartition;
+            this.partitions = partitions;
+        }
+
+        @Override
+        protected PayrollTotals compute() {
+            if (endPartition - firstPartition == 1) {
+                return computePartition(firstPartition);
+            }
+            int middle = (firstPartition + endPartition) >>> 1;
+            PartitionTask left = new PartitionTask(employees, length, numberBase, firstPartition, middle, partitions);
+            PartitionTask right = new PartitionTask(employees, length, numberBase, middle, endPartition, partitions);
+            left.fork();
+            PayrollTotals rightTotals = right.compute();
+            PayrollTotals totals = left.join();
+            totals.add(rightTotals);
+            return totals;
+        }
+
+        private PayrollTotals computePartition(int partition) {
+            int from = partition * partitionSize;
+            int to = Math.min(from + partitionSize, length);
+            long start = System.nanoTime();
+
+            int count = to - from;
+            long[] pay = new long[count];
+            long[] tax = new long[count];
+            for (int i = 0; i < count; i++) {
+                pay[i] = employees[from + i].calculatePay();
+            }
+            TaxCalculator.calculateTaxes(employees, from, pay, tax, count);
+
+            PayrollTotals totals = new PayrollTotals();
+            for (int i = 0; i < count; i++) {
+                totals.gross += pay[i];
+                totals.tax += tax[i];
+                totals.net += pay[i] - tax[i];
+            }
+            totals.employees = count;
+
+            partitions[partition] = new PartitionStats(numberBase + partition, to - from, System.nanoTime() - start);
+            return totals;
+        }
+    }
+}
+
+// Running gross, tax and net for a set of employees, in cents. Sums of cents are exact, so the
+// totals do not depend on the order partitions or changes are added in.
+class PayrollTotals {
+    long gross;
+    long tax;
+    long net;
+    int employees;
+
+    void add(PayrollTotals other) {
+        gross += other.gross;
+        tax += other.tax;
+        net += other.net;
+        employees += other.employees;
+    }
+}
+
+// Timing for one partition of a payroll run
+class PartitionStats {
+    private final int partition;
+    private final int employees;
+    private final long nanos;
+
+    PartitionStats(int partition, int employees, long nanos) {
+        this.partition = partition;
+        this.employees = employees;
+        this.nanos = nanos;
+    }
+
+    public int getPartition() {
+        return partition;
+    }
+
+    public int getEmployees() {
+        return employees;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public double getEmployeesPerSecond() {
+        return nanos == 0 ? 0 : employees * 1_000_000_000.0 / nanos;
+    }
+}
+
+// Result of a payroll run: merged totals and timings
+class PayrollRunResult {
+    private final PayrollTotals totals;
+    private final long wallNanos;
+    private final List<PartitionStats> partitions;
+
+    PayrollRunResult(PayrollTotals totals, long wallNanos, List<PartitionStats> partitions) {
+        this.totals = totals;
+        this.wallNanos = wallNanos;
+        this.partitions = partitions;
+    }
+
+    public long getGross() {
+        return totals.gross;
+    }
+
+    public long getTax() {
+        return totals.tax;
+    }
+
+    public long getNet() {
+        return totals.net;
+    }
+
+    public int getEmployees() {
+        return totals.employees;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public List<PartitionStats> getPartitions() {
+        return partitions;
+    }
+
+    // One-line summary of wall time and partition throughput
+    public String report() {
+        double minRate = Double.MAX_VALUE;
+        double maxRate = 0;
+        for (PartitionStats stats : partitions) {
+            minRate = Math.min(minRate, stats.getEmployeesPerSecond());
+            maxRate = Math.max(maxRate, stats.getEmployeesPerSecond());
+        }
+        if (partitions.isEmpty()) {
+            minRate = 0;
+        }
+        double wallMillis = wallNanos / 1_000_000.0;
+        return String.format("Payroll run: %d employees, %d partitions, %.2f ms wall time, " +
+                        "%.0f-%.0f employees/s per partition",
+                totals.employees, partitions.size(), wallMillis, minRate, maxRate);
+    }
+}
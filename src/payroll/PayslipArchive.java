@@ -0,0 +1,174 @@
+package payroll;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// PayslipArchive class for reading a payroll run's payslips back from the archive PayslipArchiver
+// wrote. The pay stubs of consecutive employees are compressed together in blocks; an index at the
+// end of the file says which block and where in it each employee's stub is, so one stub costs a
+// binary search and inflating one block, whatever the headcount. The blocks' text joined together is
+// exactly what the plain payslips file used to hold: every stub in id order, each followed by a line
+// separator. Layout (ByteBuffer byte order):
+//   block       : raw deflate of the UTF-8 text of up to PayslipArchiver.STUBS_PER_BLOCK stubs
+//   index entry : employee id (int), block (int), offset in the block's text (int), length (int)
+//   block entry : file offset (long), compressed length (int), text length (int), CRC-32 of the text (int)
+//   footer      : magic (int), version (int), stubs (int), blocks (int), index offset (long)
+// The index entries come first, in id order, then the block entries, then the footer.
+// Lookups only use positional reads, so any number of threads can share one archive.
+class PayslipArchive implements Closeable {
+    static final String EXTENSION = ".archive";
+    static final int MAGIC = 0x50534C50; // "PSLP"
+    static final int VERSION = 1;
+    static final int INDEX_ENTRY_SIZE = 16;
+    static final int BLOCK_ENTRY_SIZE = 20;
+    static final int FOOTER_SIZE = 24;
+
+    private final FileChannel channel;
+    private final int[] ids; // Sorted
+    private final int[] blockOf;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final long[] blockOffsets;
+    private final int[] compressedLengths;
+    private final int[] textLengths;
+    private final int[] checksums;
+
+    private PayslipArchive(FileChannel channel, int stubs, int blocks, long indexOffset) throws IOException {
+        this.channel = channel;
+        ByteBuffer index = ByteBuffer.allocate(stubs * INDEX_ENTRY_SIZE + blocks * BLOCK_ENTRY_SIZE);
+        readFully(channel, index, indexOffset);
+        index.flip();
+        ids = new int[stubs];
+        blockOf = new int[stubs];
+        offsets = new int[stubs];
+        lengths = new int[stubs];
+        for (int i = 0; i < stubs; i++) {
+            ids[i] = index.getInt();
+            blockOf[i] = index.getInt();
+            offsets[i] = index.getInt();
+            lengths[i] = index.getInt();
+        }
+        blockOffsets = new long[blocks];
+        compressedLengths = new int[blocks];
+        textLengths = new int[blocks];
+        checksums = new int[blocks];
+        for (int i = 0; i < blocks; i++) {
+            blockOffsets[i] = index.getLong();
+            compressedLengths[i] = index.getInt();
+            textLengths[i] = index.getInt();
+            checksums[i] = index.getInt();
+        }
+    }
+
+    public static PayslipArchive open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < FOOTER_SIZE) {
+                throw new IOException("Not a payslip archive: " + file);
+            }
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+            readFully(channel, footer, size - FOOTER_SIZE);
+            footer.flip();
+            if (footer.getInt() != MAGIC) {
+                throw new IOException("Not a payslip archive: " + file);
+            }
+            int version = footer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported payslip archive version " + version + ": " + file);
+            }
+            int stubs = footer.getInt();
+            int blocks = footer.getInt();
+            long indexOffset = footer.getLong();
+            long indexSize = (long) stubs * INDEX_ENTRY_SIZE + (long) blocks * BLOCK_ENTRY_SIZE;
+            if (stubs < 0 || blocks < 0 || indexOffset < 0 || indexOffset + indexSize != size - FOOTER_SIZE) {
+                throw new IOException("Damaged payslip archive: " + file);
+            }
+            return new PayslipArchive(channel, stubs, blocks, indexOffset);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int getBlocks() {
+        return blockOffsets.length;
+    }
+
+    // One employee's pay stub, or null if the run had no payslip for them
+    public String payslip(int employeeId) throws IOException {
+        int i = Arrays.binarySearch(ids, employeeId);
+        if (i < 0) return null;
+        byte[] text = block(blockOf[i]);
+        return new String(text, offsets[i], lengths[i], StandardCharsets.UTF_8);
+    }
+
+    // Write every stub, in id order, as the plain payslips file would hold them
+    public void copyTo(WritableByteChannel out) throws IOException {
+        for (int b = 0; b < blockOffsets.length; b++) {
+            ByteBuffer text = ByteBuffer.wrap(block(b));
+            while (text.hasRemaining()) {
+                out.write(text);
+            }
+        }
+    }
+
+    // The text of one block, checked against its CRC-32
+    private byte[] block(int b) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(compressedLengths[b]);
+        readFully(channel, compressed, blockOffsets[b]);
+        byte[] text = new byte[textLengths[b]];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed.array());
+            int length = 0;
+            while (length < text.length) {
+                int inflated = inflater.inflate(text, length, text.length - length);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Payslip archive block " + b + " is truncated");
+                }
+                length += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Payslip archive block " + b + " is damaged: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(text);
+        if ((int) crc.getValue() != checksums[b]) {
+            throw new IOException("Payslip archive block " + b + " fails its checksum");
+        }
+        return text;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Payslip archive ends early");
+            }
+            position += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
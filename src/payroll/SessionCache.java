@@ -0,0 +1,71 @@
+package payroll;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// SessionCache class for remembering successful logins as random session tokens.
+// Checking a token is a map lookup, so repeated authenticated calls skip the password hash.
+// Tokens expire a fixed time after login; expired ones are dropped when looked up and swept
+// out every few hundred logins.
+class SessionCache {
+    static final long DEFAULT_TTL_MILLIS = 30 * 60 * 1000L; // 30 minutes
+    private static final int TOKEN_BYTES = 32;
+    private static final int SWEEP_INTERVAL = 256; // Logins between sweeps of expired sessions
+
+    private final long ttlMillis;
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger opened = new AtomicInteger();
+
+    public SessionCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    // Start a session for a user whose password has just been verified
+    public String open(String username) {
+        if (opened.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            long now = System.currentTimeMillis();
+            sessions.values().removeIf(session -> session.expiresAt <= now);
+        }
+
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(username, System.currentTimeMillis() + ttlMillis));
+        return token;
+    }
+
+    // The user the token belongs to, or null if it is unknown or expired
+    public String validate(String token) {
+        if (token == null) return null;
+        Session session = sessions.get(token);
+        if (session == null) return null;
+        if (session.expiresAt <= System.currentTimeMillis()) {
+            sessions.remove(token, session);
+            return null;
+        }
+        return session.username;
+    }
+
+    public void close(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private static final class Session {
+        final String username;
+        final long expiresAt;
+
+        Session(String username, long expiresAt) {
+            this.username = username;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
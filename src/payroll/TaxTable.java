@@ -0,0 +1,140 @@
+package payroll;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+// TaxTable class for progressive tax: an allowance that is not taxed, then brackets that each tax
+// the income above their lower bound at their own rate. The tax owed below every bracket is summed
+// once when the table is built, so taxing an income is a binary search for its bracket plus one
+// multiply-add, however many brackets there are. Amounts are cents and rates millionths (see Money);
+// the tax on an income is exact until it is rounded to cents once at the end.
+class TaxTable {
+    private final long allowance;
+    private final long[] lowerBounds; // Ascending, the first is 0; applies to income after the allowance
+    private final long[] rates;
+    private final long[] taxBelow; // Tax owed on income up to each lower bound, in cents times millionths
+
+    // Allowance and lower bounds in currency units, rates as fractions
+    public TaxTable(double allowance, double[] lowerBounds, double[] rates) {
+        if (allowance < 0) {
+            throw new IllegalArgumentException("Allowance must not be negative: " + allowance);
+        }
+        if (lowerBounds.length == 0 || lowerBounds.length != rates.length) {
+            throw new IllegalArgumentException("Every bracket needs one lower bound and one rate");
+        }
+        if (lowerBounds[0] != 0) {
+            throw new IllegalArgumentException("The first bracket must start at 0");
+        }
+        this.allowance = Money.ofUnits(allowance);
+        this.lowerBounds = new long[lowerBounds.length];
+        this.rates = new long[rates.length];
+        for (int i = 0; i < rates.length; i++) {
+            if (rates[i] < 0 || rates[i] > 1) {
+                throw new IllegalArgumentException("Tax rate must be between 0 and 1: " + rates[i]);
+            }
+            if (!Money.isExactRate(rates[i])) {
+                throw new IllegalArgumentException("Tax rate must have at most 6 decimal places: " + rates[i]);
+            }
+            this.lowerBounds[i] = Money.ofUnits(lowerBounds[i]);
+            this.rates[i] = Money.rateOf(rates[i]);
+            if (i > 0 && this.lowerBounds[i] <= this.lowerBounds[i - 1]) {
+                throw new IllegalArgumentException("Bracket lower bounds must be ascending: " + lowerBounds[i]);
+            }
+        }
+        this.taxBelow = new long[lowerBounds.length];
+        for (int i = 1; i < lowerBounds.length; i++) {
+            long bracketWidth = this.lowerBounds[i] - this.lowerBounds[i - 1];
+            taxBelow[i] = Math.addExact(taxBelow[i - 1], Math.multiplyExact(bracketWidth, this.rates[i - 1]));
+        }
+    }
+
+    // One rate on all income
+    public static TaxTable flat(double rate) {
+        return new TaxTable(0, new double[]{0}, new double[]{rate});
+    }
+
+    // Tax in cents on an income in cents
+    public long tax(long income) {
+        long taxable = income - allowance;
+        if (taxable <= 0) return 0;
+        int bracket = bracketOf(taxable);
+        return Money.roundMicros(taxBelow[bracket] + Math.multiplyExact(taxable - lowerBounds[bracket], rates[bracket]));
+    }
+
+    // Tax the first count incomes into taxes, in one call
+    public void tax(long[] incomes, long[] taxes, int count) {
+        long allowance = this.allowance;
+        long[] lowerBounds = this.lowerBounds;
+        long[] rates = this.rates;
+        long[] taxBelow = this.taxBelow;
+        if (lowerBounds.length == 1) {
+            // A single bracket needs no search at all
+            long rate = rates[0];
+            for (int i = 0; i < count; i++) {
+                taxes[i] = Money.applyRate(Math.max(0, incomes[i] - allowance), rate);
+            }
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            long taxable = incomes[i] - allowance;
+            if (taxable <= 0) {
+                taxes[i] = 0;
+            } else {
+                int bracket = bracketOf(taxable);
+                taxes[i] = Money.roundMicros(taxBelow[bracket]
+                        + Math.multiplyExact(taxable - lowerBounds[bracket], rates[bracket]));
+            }
+        }
+    }
+
+    public int getBrackets() {
+        return lowerBounds.length;
+    }
+
+    // Index of the last bracket whose lower bound is at or below the taxable income
+    private int bracketOf(long taxable) {
+        int index = Arrays.binarySearch(lowerBounds, taxable);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    // Read tables from a file with one line per employee type:
+    //   <type>,<allowance>,<lower bound>,<rate>[,<lower bound>,<rate>...]
+    // Blank lines and lines starting with # are skipped. Types not in the file are left out of the map.
+    static Map<EmployeeType, TaxTable> load(File file) throws IOException {
+        Map<EmployeeType, TaxTable> tables = new EnumMap<>(EmployeeType.class);
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                String[] parts = line.split(",");
+                if (parts.length < 4 || parts.length % 2 != 0) {
+                    throw new IOException("Line " + lineNumber + ": expected type, allowance and bound/rate pairs");
+                }
+                try {
+                    EmployeeType type = EmployeeType.valueOf(parts[0].trim().toUpperCase());
+                    double allowance = Double.parseDouble(parts[1].trim());
+                    int brackets = (parts.length - 2) / 2;
+                    double[] lowerBounds = new double[brackets];
+                    double[] rates = new double[brackets];
+                    for (int i = 0; i < brackets; i++) {
+                        lowerBounds[i] = Double.parseDouble(parts[2 + 2 * i].trim());
+                        rates[i] = Double.parseDouble(parts[3 + 2 * i].trim());
+                    }
+                    tables.put(type, new TaxTable(allowance, lowerBounds, rates));
+                } catch (IllegalArgumentException e) { // Also covers NumberFormatException
+                    throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return tables;
+    }
+}
@@ -0,0 +1,1785 @@
+package payroll;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+enum EmployeeType {
+    SALARIED,
+    HOURLY,
+    COMMISSIONED
+}
+
+// EmployeeIdGenerator class for handing out employee ids safely from any number of threads.
+// Ids come from an atomic counter. A high-water mark file records the end of the block of ids
+// reserved so far; a new block is written to disk before any id from it is handed out, so after a
+// restart the counter resumes from the mark and an id is never reused. Unused ids of the last block
+// are skipped on restart.
+class EmployeeIdGenerator {
+    private static final int FIRST_ID = 101; // Default ID if no ids were ever handed out
+    private static final int BLOCK_SIZE = 1000; // Ids reserved per write of the mark file
+    private static final File HIGH_WATER_MARK_FILE = new File("employee_id_hwm.txt");
+
+    private static final AtomicInteger nextId;
+    private static volatile int reservedUpTo; // Ids below this are covered by the mark on disk
+
+    static {
+        int mark = loadHighWaterMark();
+        nextId = new AtomicInteger(mark);
+        reservedUpTo = mark;
+    }
+
+    public static int generateId() {
+        int id = nextId.getAndIncrement();
+        if (id >= reservedUpTo) {
+            reserveThrough(id);
+        }
+        return id;
+    }
+
+    // Make sure an id that was loaded from elsewhere (e.g. the journal) is never handed out again
+    public static void ensureAbove(int id) {
+        nextId.accumulateAndGet(id + 1, Math::max);
+    }
+
+    private static synchronized void reserveThrough(int id) {
+        if (id < reservedUpTo) return; // Another thread already reserved a block covering this id
+
+        int limit = Math.max(id + 1, nextId.get()) + BLOCK_SIZE;
+        try {
+            saveHighWaterMark(limit);
+        } catch (IOException e) {
+            // Handing the id out without the mark on disk could reuse it after a restart
+            throw new UncheckedIOException("Error saving employee id reservation", e);
+        }
+        reservedUpTo = limit;
+    }
+
+    private static int loadHighWaterMark() {
+        if (!HIGH_WATER_MARK_FILE.exists()) return FIRST_ID;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(HIGH_WATER_MARK_FILE))) {
+            String line = reader.readLine();
+            return line == null ? FIRST_ID : Math.max(FIRST_ID, Integer.parseInt(line.trim()));
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Error reading employee id reservation: " + e.getMessage());
+            return FIRST_ID; // The loaded employees still push the counter past every known id
+        }
+    }
+
+    private static void saveHighWaterMark(int mark) throws IOException {
+        File tempFile = new File(HIGH_WATER_MARK_FILE.getPath() + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile))) {
+            writer.write(String.valueOf(mark));
+            writer.newLine();
+        }
+        Files.move(tempFile.toPath(), HIGH_WATER_MARK_FILE.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
+
+
+
+
+
+
+// TaxCalculator class for calculating taxes based on employee type. Each type has a TaxTable of
+// progressive brackets, read at startup from tax_brackets.txt if that file exists; types it does
+// not list keep their flat rate.
+class TaxCalculator {
+
+    // Constant tax rates for each employee type, used when no brackets are configured
+    private static final double SALARIED_TAX_RATE = 0.2; // 20% for salaried employees
+    private static final double HOURLY_TAX_RATE = 0.15; // 15% for hourly employees
+    private static final double COMMISSIONED_TAX_RATE = 0.25; // 25% for commissioned employees
+    private static final File TAX_BRACKETS_FILE = new File("tax_brackets.txt");
+
+    private static final TaxTable[] tables = loadTables(); // Indexed by EmployeeType ordinal
+
+    // Method to calculate tax based on employee type; income and tax are in cents
+    public static long calculateTax(Employee employee, long income) {
+        return tables[employee.getEmployeeType().ordinal()].tax(income); // Calculate tax based on income and brackets
+    }
+
+    // Tax the first count incomes of employees of one type in one call
+    public static void calculateTaxes(EmployeeType type, long[] incomes, long[] taxes, int count) {
+        tables[type.ordinal()].tax(incomes, taxes, count);
+    }
+
+    // Tax count employees of any type in one call: employees[from + i] earned incomes[i]
+    public static void calculateTaxes(Employee[] employees, int from, long[] incomes, long[] taxes, int count) {
+        TaxTable[] tables = TaxCalculator.tables;
+        for (int i = 0; i < count; i++) {
+            taxes[i] = tables[employees[from + i].getEmployeeType().ordinal()].tax(incomes[i]);
+        }
+    }
+
+    // Flat tax rate for an employee type
+    static double flatRateFor(EmployeeType type) {
+        switch (type) {
+            case SALARIED:
+                return SALARIED_TAX_RATE;
+            case HOURLY:
+                return HOURLY_TAX_RATE;
+            case COMMISSIONED:
+                return COMMISSIONED_TAX_RATE;
+        }
+        return 0;
+    }
+
+    private static TaxTable[] loadTables() {
+        TaxTable[] tables = new TaxTable[EmployeeType.values().length];
+        for (EmployeeType type : EmployeeType.values()) {
+            tables[type.ordinal()] = TaxTable.flat(flatRateFor(type));
+        }
+        if (!TAX_BRACKETS_FILE.exists()) return tables;
+
+        try {
+            TaxTable.load(TAX_BRACKETS_FILE).forEach((type, table) -> tables[type.ordinal()] = table);
+        } catch (IOException e) {
+            System.out.println("Error reading tax brackets, using flat rates: " + e.getMessage());
+        }
+        return tables;
+    }
+}
+
+// Abstract Employee class. Every setter gives the employee a new version, drawn from one counter for
+// the whole process, so a version is never reused, not even by a removed employee's id being taken
+// again; copy() keeps the version. Pay, tax and the pay stub therefore only change with the version,
+// which is what PayrollResultCache keys its results by. Versions are not saved with the employees.
+abstract class Employee {
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final int employeeId; // Immutable
+    private String name;
+    private EmployeeType employeeType;
+    private String paymentMethod; // Mutable
+    private String paymentDetails;
+    private long version = VERSIONS.incrementAndGet();
+
+    public Employee(int employeeId, String name, EmployeeType employeeType) {
+        this.employeeId = employeeId;
+        this.name = checkName(name);
+        this.employeeType = employeeType;
+    }
+
+    // Getters for immutable attributes
+    public int getEmployeeId() {
+        return employeeId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public EmployeeType getEmployeeType() {
+        return employeeType;
+    }
+
+    // Setters and getters for mutable attributes
+    public String getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public void setPaymentMethod(String paymentMethod) {
+        this.paymentMethod = paymentMethod;
+        changed();
+    }
+
+    public String getPaymentDetails() {
+        return paymentDetails;
+    }
+
+    public void setPaymentDetails(String paymentDetails) {
+        this.paymentDetails = paymentDetails;
+        changed();
+    }
+
+    // Setters for mutable attributes
+    public void setName(String name) {
+        this.name = checkName(name);
+        changed();
+    }
+
+    // Why a name cannot be stored, or null if it can. The journal and employees.txt keep an employee
+    // per line with comma-separated fields, so a comma or a line break in a name would shift the
+    // fields or start a record of its own; other control characters are refused along with them.
+    static String nameProblem(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == ',') return "must not contain a comma";
+            if (Character.isISOControl(c)) return "must not contain control characters";
+        }
+        return null;
+    }
+
+    private static String checkName(String name) {
+        String problem = nameProblem(name);
+        if (problem != null) {
+            throw new IllegalArgumentException("Employee name " + problem);
+        }
+        return name;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // Payment method and details a new employee starts with. Not a change, so the version drawn by the
+    // constructor stands: one draw per employee keeps parallel loads from queuing on the counter.
+    void initPayment(String paymentMethod, String paymentDetails) {
+        this.paymentMethod = paymentMethod;
+        this.paymentDetails = paymentDetails;
+    }
+
+    // Called by every setter
+    protected void changed() {
+        version = VERSIONS.incrementAndGet();
+    }
+
+    // Take the payment method and details, and the version, of the employee this is a copy of; for copy()
+    Employee withVersionOf(Employee original) {
+        initPayment(original.paymentMethod, original.paymentDetails);
+        version = original.version;
+        return this;
+    }
+
+    // Abstract methods
+    abstract long calculatePay(); // In cents
+    abstract boolean isPayInRange(); // Whether the pay is within Money.MAX_CENTS, so it and its tax can be worked out
+    abstract Employee copy(); // Stored employees are replaced by changed copies, never changed in place
+    abstract void appendPayStub(StringBuilder out); // Write the pay stub text into a caller-owned buffer
+
+    String generatePayStub() {
+        StringBuilder out = new StringBuilder(256);
+        appendPayStub(out);
+        return out.toString();
+    }
+
+    // Payment method and details, tax and net pay: the end of every pay stub
+    void appendPayment(StringBuilder out, long pay) {
+        long tax = TaxCalculator.calculateTax(this, pay);
+        out.append("Payment Method: ").append(getPaymentMethod()).append('\n')
+                .append(getPaymentDetails()).append('\n');
+        Money.append(out.append("Tax Deduction: $"), tax).append('\n');
+        Money.append(out.append("Net Pay: $"), pay - tax).append('\n');
+    }
+}
+
+// SalariedEmployee Class
+class SalariedEmployee extends Employee {
+    private long salary; // In cents
+
+    public SalariedEmployee(int employeeId, String name, double salary) {
+        super(employeeId, name, EmployeeType.SALARIED);
+        this.salary = Money.ofUnits(salary);
+        initPayment("Bank CIB", "Account: " + getEmployeeId() + "48945665");
+    }
+
+    public double getSalary() {
+        return Money.toUnits(salary);
+    }
+
+    public long getSalaryCents() {
+        return salary;
+    }
+
+    @Override
+    Employee copy() {
+        return new SalariedEmployee(getEmployeeId(), getName(), getSalary()).withVersionOf(this);
+    }
+
+    public void setSalary(double salary) {
+        this.salary = Money.ofUnits(salary);
+        changed();
+    }
+
+    @Override
+    long calculatePay() {
+        return salary;
+    }
+
+    @Override
+    boolean isPayInRange() {
+        return true; // Money.ofUnits keeps the salary in range
+    }
+
+    @Override
+    void appendPayStub(StringBuilder out) {
+        out.append("Pay Stub - Salaried Employee\n")
+                .append("Name: ").append(getName()).append('\n')
+                .append("Employee ID: ").append(getEmployeeId()).append('\n');
+        Money.append(out.append("Salary: $"), salary).append('\n');
+        appendPayment(out, salary); // Tax for salaried employee
+    }
+}
+
+// HourlyEmployee Class
+class HourlyEmployee extends Employee {
+    private long hourlyRate; // In cents
+    private int hoursWorked;
+
+    public HourlyEmployee(int employeeId, String name, double hourlyRate, int hoursWorked) {
+        super(employeeId, name, EmployeeType.HOURLY);
+        this.hourlyRate = Money.ofUnits(hourlyRate);
+        this.hoursWorked = hoursWorked;
+        initPayment("Bank ALAHLY", "Account: " + getEmployeeId() + "12344665");
+    }
+
+    public double getHourlyRate() {
+        return Money.toUnits(hourlyRate);
+    }
+
+    public long getHourlyRateCents() {
+        return hourlyRate;
+    }
+
+    public void setHourlyRate(double hourlyRate) {
+        this.hourlyRate = Money.ofUnits(hourlyRate);
+        changed();
+    }
+
+    public int getHoursWorked() {
+        return hoursWorked;
+    }
+
+    @Override
+    Employee copy() {
+        return new HourlyEmployee(getEmployeeId(), getName(), getHourlyRate(), hoursWorked).withVersionOf(this);
+    }
+
+    public void setHoursWorked(int hoursWorked) {
+        this.hoursWorked = hoursWorked;
+        changed();
+    }
+
+    @Override
+    long calculatePay() {
+        return Math.multiplyExact(hourlyRate, hoursWorked);
+    }
+
+    @Override
+    boolean isPayInRange() {
+        return Money.isAmountTimes(hourlyRate, hoursWorked);
+    }
+
+    @Override
+    void appendPayStub(StringBuilder out) {
+        long totalPay = calculatePay();
+        out.append("Pay Stub - Hourly Employee\n")
+                .append("Name: ").append(getName()).append('\n')
+                .append("Employee ID: ").append(getEmployeeId()).append('\n');
+        Money.append(out.append("Hourly Rate: $"), hourlyRate).append('\n')
+                .append("Hours Worked: ").append(hoursWorked).append('\n');
+        Money.append(out.append("Total Pay: $"), totalPay).append('\n');
+        appendPayment(out, totalPay); // Tax for hourly employee
+    }
+}
+
+// CommissionedEmployee Class
+class CommissionedEmployee extends Employee {
+    private long commissionRate; // In millionths
+    private int totalSales; // In whole currency units
+
+    public CommissionedEmployee(int employeeId, String name, double commissionRate, int totalSales) {
+        super(employeeId, name, EmployeeType.COMMISSIONED);
+        this.commissionRate = Money.rateOf(commissionRate);
+        this.totalSales = totalSales;
+        initPayment("Check", "Check Number: " + getEmployeeId() + "7745565");
+    }
+
+    public double getCommissionRate() {
+        return Money.toRate(commissionRate);
+    }
+
+    public long getCommissionRateMicros() {
+        return commissionRate;
+    }
+
+    public void setCommissionRate(double commissionRate) {
+        this.commissionRate = Money.rateOf(commissionRate);
+        changed();
+    }
+
+    public int getTotalSales() {
+        return totalSales;
+    }
+
+    @Override
+    Employee copy() {
+        return new CommissionedEmployee(getEmployeeId(), getName(), getCommissionRate(), totalSales).withVersionOf(this);
+    }
+
+    public void setTotalSales(int totalSales) {
+        this.totalSales = totalSales;
+        changed();
+    }
+
+    @Override
+    long calculatePay() {
+        return Money.applyRate(totalSales * Money.CENTS_PER_UNIT, commissionRate);
+    }
+
+    @Override
+    boolean isPayInRange() {
+        return Money.isAmountAtRate(totalSales * Money.CENTS_PER_UNIT, commissionRate);
+    }
+
+    @Override
+    void appendPayStub(StringBuilder out) {
+        long totalPay = calculatePay();
+        out.append("Pay Stub - Commissioned Employee\n")
+                .append("Name: ").append(getName()).append('\n')
+                .append("Employee ID: ").append(getEmployeeId()).append('\n')
+                .append("Total Sales: $").append(totalSales).append('\n');
+        Money.appendPercent(out.append("Commission Rate: "), commissionRate).append('\n');
+        Money.append(out.append("Total Pay: $"), totalPay).append('\n');
+        appendPayment(out, totalPay); // Tax for commissioned employee
+    }
+}
+
+
+
+
+
+class PayrollConsoleApp {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            runCommand(args);
+            return;
+        }
+        PayrollSystem p = new PayrollSystem();
+        p.start();
+    }
+
+    // Non-interactive commands: import <change-file> [batch-size], check, payments, metrics,
+    // payslip <archive> <id>, history <id> <from> <to>, serve [port]
+    private static void runCommand(String[] args) throws IOException {
+        if (args[0].equals("import") && (args.length == 2 || args.length == 3)) {
+            int batchSize = args.length == 3 ? Integer.parseInt(args[2]) : BulkImporter.DEFAULT_BATCH_SIZE;
+            PayrollSystem p = new PayrollSystem();
+            try {
+                new BulkImporter(p, batchSize).run(new File(args[1]));
+            } finally {
+                p.close();
+            }
+        } else if (args[0].equals("check") && args.length == 1) {
+            PayrollSystem p = new PayrollSystem();
+            try {
+                p.checkPayrollTotals();
+            } finally {
+                p.close();
+            }
+        } else if (args[0].equals("metrics") && args.length == 1) {
+            PayrollSystem p = new PayrollSystem();
+            try {
+                System.out.print(p.dumpMetrics());
+            } finally {
+                p.close();
+            }
+        } else if (args[0].equals("payslip") && args.length == 3) {
+            PayrollSystem.printArchivedPayslip(new File(args[1]), Integer.parseInt(args[2])); // Needs no employees loaded
+        } else if (args[0].equals("payments") && args.length == 1) {
+            PayrollSystem p = new PayrollSystem();
+            try {
+                p.generatePaymentFiles();
+            } finally {
+                p.close();
+            }
+        } else if (args[0].equals("history") && args.length == 4) {
+            PayrollSystem p = new PayrollSystem();
+            try {
+                p.printPayHistory(Integer.parseInt(args[1]), LocalDate.parse(args[2]), LocalDate.parse(args[3]));
+            } finally {
+                p.close();
+            }
+        } else if (args[0].equals("serve") && (args.length == 1 || args.length == 2)) {
+            serve(args.length == 2 ? Integer.parseInt(args[1]) : PayrollHttpServer.DEFAULT_PORT);
+        } else {
+            System.out.println("Usage: PayrollConsoleApp [import <change-file> [batch-size] | check | payments | metrics"
+                    + " | payslip <archive-file> <employee-id>"
+                    + " | history <employee-id> <from yyyy-MM-dd> <to yyyy-MM-dd> | serve [port]]");
+        }
+    }
+
+    // Serve the HTTP API until the process is stopped; -Dpayroll.http.host=0.0.0.0 listens on every
+    // interface, -Dpayroll.http.threads sizes the request pool where there are no virtual threads
+    private static void serve(int port) throws IOException {
+        PayrollSystem p = new PayrollSystem();
+        PayrollHttpServer server;
+        try {
+            server = new PayrollHttpServer(p, new InetSocketAddress(System.getProperty("payroll.http.host", "localhost"), port),
+                    Integer.getInteger("payroll.http.backlog", PayrollHttpServer.DEFAULT_BACKLOG),
+                    Integer.getInteger("payroll.http.threads", PayrollHttpServer.DEFAULT_PLATFORM_THREADS));
+            server.start();
+        } catch (IOException | RuntimeException e) {
+            p.close();
+            throw e;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            try {
+                p.close(); // Writes out the journal
+            } catch (IOException e) {
+                System.out.println("Error closing the payroll system: " + e.getMessage());
+            }
+        }));
+        System.out.println("Payroll API listening on port " + server.getPort() + "; stop with Ctrl-C");
+    }
+}
+
+
+class PayrollSystem {
+    private final EmployeeIndex employees;
+    private final CredentialStore userCredentials = new CredentialStore(new File("user_credentials.txt"));
+    private final SessionCache sessions = new SessionCache(SessionCache.DEFAULT_TTL_MILLIS);
+    private final Scanner console = new Scanner(System.in);
+    private static final int LOCK_STRIPES = 64;
+    // Writers share this lock; snapshots, array growth and journal compaction take it exclusively
+    private final ReentrantReadWriteLock storeLock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES]; // Serialize writers of the same employee
+    private final String employeesFile = "employees.txt"; // CSV export
+    private final String snapshotFile = "employees.bin";
+    private static final long JOURNAL_COMPACTION_THRESHOLD = 4L * 1024 * 1024; // Fold the journal into employees.bin past 4 MB
+    private final PayrollRun payrollRun = new PayrollRun();
+    private final DisbursementRun disbursementRun = new DisbursementRun();
+    private static final DateTimeFormatter PAYSLIP_RUN_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    // Optional column-per-type copy of the employees (-Dpayroll.columnar=true), used for payroll totals
+    private final ColumnarPayroll columns = Boolean.getBoolean("payroll.columnar") ? new ColumnarPayroll() : null;
+    private final PayrollAggregates aggregates = new PayrollAggregates(); // Running totals, kept in step with every change
+    // Low-memory mode (-Dpayroll.lazy=true): employees stay in employees.bin until asked for and at most
+    // -Dpayroll.cacheSize of them are cached. The search index is left out too, so searches scan.
+    private final boolean lazy = Boolean.getBoolean("payroll.lazy");
+    private final EmployeeSearchIndex searchIndex = lazy ? null : new EmployeeSearchIndex(); // Lookup by name, type and pay rate, kept in step the same way
+    // Each employee's pay stub from the last payslip run, reused until the employee changes.
+    // Left out in low-memory mode, as it holds every employee's stub.
+    private final PayrollResultCache resultCache = lazy ? null : new PayrollResultCache();
+    private final PayslipArchiver payslipArchiver = new PayslipArchiver(ForkJoinPool.commonPool(), PayslipArchiver.DEFAULT_LEVEL, resultCache);
+    private static final int SCAN_PAGE_SIZE = 1024; // Employees read at a time by searches without the search index
+    private static final int PICKER_LIMIT = 20; // Employees listed at a time when choosing one
+    // Changes are written behind the callers; -Dpayroll.journal.fsync=every-flush forces each batch to disk,
+    // -Dpayroll.journal.flushMillis sets how long changes may gather before they are written
+    private final EmployeeJournal journal = new EmployeeJournal(new File(snapshotFile), JOURNAL_COMPACTION_THRESHOLD,
+            EmployeeJournal.FsyncPolicy.valueOf(System.getProperty("payroll.journal.fsync", "never").toUpperCase().replace('-', '_')),
+            Long.getLong("payroll.journal.flushMillis", EmployeeJournal.DEFAULT_FLUSH_INTERVAL_MILLIS));
+    private final PayrollLedger ledger = new PayrollLedger(new File("ledger")); // Every payslip run's pay, tax and net
+    // Operation counts, latencies and gauges, printed by the Metrics menu item and the metrics command and
+    // published over JMX. Histograms and counters are looked up once here so that recording costs no lookup.
+    private final PayrollMetrics metrics = new PayrollMetrics();
+    private final LatencyHistogram loadTimes = metrics.timer("loadEmployees");
+    private final LatencyHistogram saveTimes = metrics.timer("saveEmployee");
+    private final LatencyHistogram addTimes = metrics.timer("addEmployee");
+    private final LatencyHistogram removeTimes = metrics.timer("removeEmployee");
+    private final LatencyHistogram updateTimes = metrics.timer("updateDetails");
+    private final LatencyHistogram loginTimes = metrics.timer("login");
+    private final LatencyHistogram totalPayrollTimes = metrics.timer("calculateTotalPayroll");
+    private final LatencyHistogram checkTotalsTimes = metrics.timer("checkPayrollTotals");
+    private final LatencyHistogram payslipTimes = metrics.timer("generatePayslips");
+    private final LatencyHistogram paymentFileTimes = metrics.timer("generatePaymentFiles");
+    private final LatencyHistogram exportTimes = metrics.timer("exportEmployees");
+    private final LatencyHistogram searchTimes = metrics.timer("search");
+    private final LatencyHistogram importBatchTimes = metrics.timer("commitBatch");
+    private final LongAdder saveFailures = metrics.counter("saveEmployee.failures");
+    private final LongAdder rejectedUpdates = metrics.counter("updateDetails.rejected");
+    private final LongAdder loginFailures = metrics.counter("login.failures");
+    private final LongAdder exportFailures = metrics.counter("exportEmployees.failures");
+    private final LongAdder payslipFailures = metrics.counter("generatePayslips.failures");
+    private final LongAdder payslipsWritten = metrics.counter("payslips.written");
+    private final LongAdder payslipsCached = metrics.counter("payslips.cached"); // Written without being rendered again
+    private final LongAdder paymentFileFailures = metrics.counter("generatePaymentFiles.failures");
+    private final LongAdder paymentsWritten = metrics.counter("payments.written");
+    private final LongAdder ledgerFailures = metrics.counter("ledger.failures");
+
+    public PayrollSystem() throws IOException {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        userCredentials.load();// Load user credentials from file at startup
+        long start = System.nanoTime();
+        employees = loadEmployees();
+        loadTimes.recordSince(start);
+        ledger.open();
+        registerGauges();
+        metrics.registerMBean();
+    }
+
+    private void registerGauges() {
+        metrics.gauge("employees", employees::size);
+        metrics.gauge("sessions", sessions::size);
+        metrics.gauge("store.snapshotBytes", () -> new File(snapshotFile).length());
+        metrics.gauge("store.journalBytes", journal::getFileBytes);
+        metrics.gauge("journal.queuedRecords", journal::getQueuedRecords);
+        metrics.gauge("journal.writeFailures", journal::getWriteFailures);
+        metrics.gauge("journal.failedAttempts", journal::getFailedAttempts); // Non-zero while writes keep failing
+        metrics.gauge("journal.snapshotFailures", journal::getSnapshotFailures);
+        metrics.timer("journal.write", journal.getWriteTimes());
+        metrics.timer("journal.snapshot", journal.getSnapshotTimes()); // What saving all employees costs now
+        metrics.gauge("ledger.runs", ledger::getRuns);
+        if (employees instanceof LazyEmployeeIndex) {
+            LazyEmployeeIndex lazyEmployees = (LazyEmployeeIndex) employees;
+            metrics.gauge("cache.hits", lazyEmployees::getCacheHits);
+            metrics.gauge("cache.misses", lazyEmployees::getCacheMisses);
+            metrics.gauge("cache.employees", lazyEmployees::getCachedEmployees);
+            metrics.gauge("cache.changedEmployees", lazyEmployees::getChangedEmployees);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        metrics.gauge("heap.usedBytes", () -> runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    // Every counter, gauge and latency histogram as text
+    public String dumpMetrics() {
+        return metrics.dump();
+    }
+
+    PayrollMetrics getMetrics() {
+        return metrics;
+    }
+    private EmployeeIndex loadEmployees() throws IOException {
+        long start = System.nanoTime();
+        File snapshot = new File(snapshotFile);
+        File csv = new File(employeesFile);
+        if (!snapshot.exists() && csv.exists()) {
+            // One-time conversion from the CSV format; employees.txt is only an export after this
+            CsvLoadResult converted = BinaryEmployeeStore.convertFromCsv(csv, snapshot);
+            System.out.printf("Converted %d employees to %s (%d lines read at %.0f lines/s)%n", converted.getEmployeeCount(),
+                    snapshotFile, converted.getLines(), converted.getLinesPerSecond());
+            for (String suffix : new String[]{".journal", ".journal.old"}) {
+                File legacyJournal = new File(employeesFile + suffix);
+                if (legacyJournal.exists()) {
+                    Files.move(legacyJournal.toPath(), new File(snapshotFile + suffix).toPath());
+                }
+            }
+        }
+
+        EmployeeIndex employees;
+        int cacheSize = Integer.getInteger("payroll.cacheSize", LazyEmployeeIndex.DEFAULT_CACHE_CAPACITY);
+        if (lazy) {
+            employees = LazyEmployeeIndex.open(snapshot, cacheSize);
+        } else {
+            employees = new DenseEmployeeIndex();
+            if (snapshot.exists()) {
+                try (BinaryEmployeeStore store = BinaryEmployeeStore.open(snapshot)) {
+                    for (int i = 0; i < store.size(); i++) {
+                        Employee employee = store.read(i);
+                        employees.put(employee);
+                    }
+                }
+            }
+        }
+
+        journal.replay(employees); // Changes made since the snapshot was written
+        // One pass for everything kept in step with the employees; in lazy mode it streams from the file
+        for (Employee employee : employees.values()) {
+            EmployeeIdGenerator.ensureAbove(employee.getEmployeeId()); // Ids handed out after the last snapshot live only in the journal
+            if (columns != null) {
+                columns.addEmployee(employee);
+            }
+            aggregates.add(employee);
+            if (searchIndex != null) {
+                searchIndex.add(employee);
+            }
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("Loaded %d employees in %d ms (%s), heap in use %d MB%n", employees.size(),
+                (System.nanoTime() - start) / 1_000_000, lazy ? "lazy, cache of " + cacheSize : "all in memory",
+                (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+        return employees;
+    }
+
+    // Write the current employees to employees.txt in the CSV format
+    public void exportEmployees() {
+        long start = System.nanoTime();
+        try {
+            Collection<Employee> snapshot = employeesById();
+            EmployeeCsv.writeAll(new File(employeesFile), snapshot);
+            System.out.println("Exported " + snapshot.size() + " employees to " + employeesFile);
+        } catch (IOException e) {
+            exportFailures.increment();
+            System.out.println("Error exporting employee data: " + e.getMessage());
+        } finally {
+            exportTimes.recordSince(start);
+        }
+    }
+
+    // Append one employee's current state to the journal instead of rewriting employees.txt.
+    // The record is read under the employee's lock, so the last journal entry for an id is always
+    // its latest state even when several sessions change it at once.
+    private void saveEmployee(int employeeId) throws IOException {
+        long start = System.nanoTime();
+        lockEmployee(employeeId);
+        try {
+            Employee current = employees.get(employeeId);
+            if (current != null) {
+                journal.recordUpsert(current);
+            }
+        } finally {
+            unlockEmployee(employeeId);
+        }
+        compactJournalIfNeeded();
+        saveTimes.recordSince(start);
+    }
+
+    private void compactJournalIfNeeded() throws IOException {
+        if (!journal.needsCompaction()) return;
+        storeLock.writeLock().lock(); // The snapshot and the journal rotation must see the same changes
+        try {
+            journal.compactIfNeeded(employees, this::reopenSnapshot);
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    // In lazy mode, read the employees a compaction has just written from the new snapshot instead
+    // of keeping them in memory
+    private void reopenSnapshot(Collection<Employee> written) throws IOException {
+        if (!(employees instanceof LazyEmployeeIndex)) return;
+        storeLock.writeLock().lock();
+        try {
+            ((LazyEmployeeIndex) employees).reopen(new File(snapshotFile), written);
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    // Wait for background journal work and close the journal
+    public void close() throws IOException {
+        metrics.unregisterMBean();
+        try {
+            journal.close();
+        } finally {
+            try {
+                ledger.close();
+            } finally {
+                if (employees instanceof LazyEmployeeIndex) {
+                    ((LazyEmployeeIndex) employees).close(); // Releases employees.bin
+                }
+            }
+        }
+    }
+
+    // Lock out other writers of this employee, and snapshots, until unlockEmployee() for the same id.
+    // An id outside the index is simply not found; only storeEmployee() makes room for one.
+    private void lockEmployee(int employeeId) {
+        storeLock.readLock().lock();
+        stripes[Math.floorMod(employeeId, LOCK_STRIPES)].lock();
+    }
+
+    private void unlockEmployee(int employeeId) {
+        stripes[Math.floorMod(employeeId, LOCK_STRIPES)].unlock();
+        storeLock.readLock().unlock();
+    }
+
+    // Grow the index so that a new employee's id fits, before locking the employee
+    private void reserveSlot(int employeeId) {
+        if (employees.fits(employeeId)) return;
+        storeLock.writeLock().lock(); // Growing the index must not race with other writers
+        try {
+            employees.reserve(employeeId);
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    // Employees in id order at one instant; writers wait only while the snapshot is taken. Stored
+    // employees are never changed in place, so it stays consistent afterwards. In lazy mode the
+    // employees are read from the file as the snapshot is iterated, not held in memory.
+    private Collection<Employee> employeesById() {
+        storeLock.writeLock().lock();
+        try {
+            return employees.capture();
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    // Put an employee in memory (and the columns, if enabled) and journal it. The totals are updated
+    // first: working out the pay and tax is what can fail, and then nothing has been changed yet.
+    private void storeEmployee(Employee employee) throws IOException {
+        if (!employee.isPayInRange()) {
+            throw new IllegalArgumentException("Pay out of range for employee " + employee.getEmployeeId());
+        }
+        long start = System.nanoTime();
+        reserveSlot(employee.getEmployeeId());
+        lockEmployee(employee.getEmployeeId());
+        try {
+            Employee previous = employees.get(employee.getEmployeeId());
+            aggregates.replace(previous, employee);
+            employees.put(employee);
+            if (searchIndex != null) {
+                searchIndex.replace(previous, employee);
+            }
+            if (columns != null) {
+                columns.addEmployee(employee);
+            }
+            journal.recordUpsert(employee);
+        } finally {
+            unlockEmployee(employee.getEmployeeId());
+            addTimes.recordSince(start);
+        }
+    }
+
+    private boolean dropEmployee(int employeeId) throws IOException {
+        long start = System.nanoTime();
+        lockEmployee(employeeId);
+        try {
+            Employee removed = employees.remove(employeeId);
+            if (removed == null) return false;
+            aggregates.remove(removed);
+            if (searchIndex != null) {
+                searchIndex.remove(removed);
+            }
+            if (columns != null) {
+                columns.removeEmployee(employeeId);
+            }
+            if (resultCache != null) {
+                resultCache.remove(employeeId);
+            }
+            journal.recordRemoval(employeeId);
+            return true;
+        } finally {
+            unlockEmployee(employeeId);
+            removeTimes.recordSince(start);
+        }
+    }
+
+    // For the HTTP API: the same changes as the menu makes, queued for the journal the same way, but
+    // reported to the caller instead of printed
+    Employee getEmployee(int employeeId) {
+        return employees.get(employeeId);
+    }
+
+    void createEmployee(Employee employee) throws IOException {
+        storeEmployee(employee);
+        compactJournalIfNeeded();
+    }
+
+    boolean deleteEmployee(int employeeId) throws IOException {
+        if (!dropEmployee(employeeId)) return false;
+        compactJournalIfNeeded();
+        return true;
+    }
+
+    // Batch operations for BulkImporter: each change is applied and queued for the journal right away;
+    // commitBatch() waits until the batch is written
+    void batchAdd(Employee employee) throws IOException {
+        storeEmployee(employee);
+    }
+
+    boolean batchUpdate(int employeeId, String attribute, Object newValue) throws IOException {
+        Employee employee = employees.get(employeeId);
+        if (employee == null) {
+            System.out.println("Employee not found!");
+            return false;
+        }
+        if (!updateDetails(employee, attribute, newValue)) return false;
+        lockEmployee(employeeId);
+        try {
+            journal.recordUpsert(employees.get(employeeId));
+        } finally {
+            unlockEmployee(employeeId);
+        }
+        return true;
+    }
+
+    boolean batchRemove(int employeeId) throws IOException {
+        if (!dropEmployee(employeeId)) {
+            System.out.println("Employee not found!");
+            return false;
+        }
+        return true;
+    }
+
+    void commitBatch() throws IOException {
+        long start = System.nanoTime();
+        try {
+            journal.sync();
+        } finally {
+            compactJournalIfNeeded();
+            importBatchTimes.recordSince(start);
+        }
+    }
+
+    // Wait until every change made so far is in the journal (and on disk, with fsync every-flush).
+    // Changes are otherwise written shortly after the call that made them returns.
+    public void awaitPersisted() throws IOException {
+        journal.sync();
+    }
+
+    // User registration
+    private void registerUser(Scanner scanner) throws IOException {
+        System.out.print("Enter a username: ");
+        String username = scanner.nextLine();
+        String problem = CredentialStore.usernameProblem(username);
+        if (problem != null) {
+            System.out.println("Invalid username: it " + problem + ".");
+            return;
+        }
+        if (userCredentials.contains(username)) {
+            System.out.println("Username already exists. Please try again.");
+            return;
+        }
+
+        System.out.print("Enter a password: ");
+        String password = scanner.nextLine();
+        System.out.print("Confirm your password: ");
+        String confirmPassword = scanner.nextLine();
+
+        if (!password.equals(confirmPassword)) {
+            System.out.println("Passwords do not match. Registration failed.");
+            return;
+        }
+
+        if (!userCredentials.register(username, password)) {
+            System.out.println("Username already exists. Please try again.");
+            return;
+        }
+        System.out.println("Registration successful!");
+    }
+
+    // Register a user without the prompts; false if the username is taken, IllegalArgumentException
+    // if it cannot be stored (see CredentialStore.usernameProblem)
+    boolean registerUser(String username, String password) throws IOException {
+        return userCredentials.register(username, password);
+    }
+
+    // User login; returns the session token, or null if the login failed
+    private String loginUser(Scanner scanner) {
+        System.out.print("Enter your username: ");
+        String username = scanner.nextLine();
+        System.out.print("Enter your password: ");
+        String password = scanner.nextLine();
+
+        String token = login(username, password);
+        if (token != null) {
+            System.out.println("Login successful! Welcome, " + username + "!");
+        } else {
+            System.out.println("Invalid username or password. Please try again.");
+        }
+        return token;
+    }
+
+    // Verify the password (slow by design) and open a session; returns its token or null
+    public String login(String username, String password) {
+        long start = System.nanoTime();
+        try {
+            if (!userCredentials.verify(username, password)) {
+                loginFailures.increment();
+                return null;
+            }
+            return sessions.open(username);
+        } finally {
+            loginTimes.recordSince(start);
+        }
+    }
+
+    // The user a session token belongs to, or null; no password hashing involved
+    public String authenticate(String token) {
+        return sessions.validate(token);
+    }
+
+    public void logout(String token) {
+        sessions.close(token);
+    }
+
+    // start app from here (main menu)
+    public void start() throws IOException {
+        runSession(console);
+        close();
+    }
+
+    // One clerk's session; several can run at once on their own threads and inputs
+    public void runSession(Scanner scanner) throws IOException {
+        System.out.println("Welcome to the Company Payroll System!");
+
+        while (true) {
+            System.out.println("\nMain Menu:");
+            System.out.println("1. Register");
+            System.out.println("2. Login");
+            System.out.println("3. Exit");
+            System.out.print("Enter your choice: ");
+            int choice = scanner.nextInt();
+            scanner.nextLine(); // Consume newline
+
+            switch (choice) {
+                case 1 -> registerUser(scanner);
+                case 2 -> {
+                    String token = loginUser(scanner);
+                    if (token != null) {
+                        menu(scanner); // Proceed to the payroll system menu after successful login
+                        logout(token);
+                    }
+                }
+                case 3 -> {
+                    System.out.println("Exiting the system. Goodbye!");
+                    return;
+                }
+                default -> System.out.println("Invalid choice. Please try again.");
+            }
+        }
+    }
+
+    // Payroll system menu (after login)
+    private void menu(Scanner scanner) {
+        while (true) {
+            System.out.println("\nPayroll System Menu:");
+            System.out.println("1. Add Employee");
+            System.out.println("2. Remove Employee");
+            System.out.println("3. Update Employee");
+            System.out.println("4. Calculate Total Payroll");
+            System.out.println("5. Generate Payslips");
+            System.out.println("6. Export Employees to CSV");
+            System.out.println("7. Check Payroll Totals");
+            System.out.println("8. Employee Pay History");
+            System.out.println("9. Generate Payment Files");
+            System.out.println("10. Metrics");
+            System.out.println("11. Logout");
+            System.out.print("Enter your choice: ");
+            int choice = scanner.nextInt();
+            scanner.nextLine(); // Consume newline
+
+            switch (choice) {
+                case 1 -> addEmployeeInteraction(scanner);
+                case 2 -> removeEmployeeInteraction(scanner);
+                case 3 -> updateEmployeeInteraction(scanner);
+                case 4 -> calculateTotalPayroll();
+                case 5 -> generatePayslips();
+                case 6 -> exportEmployees();
+                case 7 -> checkPayrollTotals();
+                case 8 -> payHistoryInteraction(scanner);
+                case 9 -> generatePaymentFiles();
+                case 10 -> System.out.print(dumpMetrics());
+                case 11 -> {
+                    System.out.println("Logging out...");
+                    return;
+                }
+                default -> System.out.println("Invalid choice! Please try again.");
+            }
+        }
+    }
+
+    // Employee management and payroll functionalities remain the same
+    public void addEmployee(Employee employee) {
+        if (!employee.isPayInRange()) {
+            System.out.println("Invalid employee: the pay would be out of range.");
+            return;
+        }
+        try {
+            storeEmployee(employee); // Saves the employee to the journal too
+            System.out.println("Employee added successfully!");
+            compactJournalIfNeeded();
+        } catch (IOException e) {
+            saveFailures.increment();
+            System.out.println("Error saving employee data.");
+        }
+    }
+
+    private void addEmployeeInteraction(Scanner scanner) {
+        System.out.print("Enter Employee Name: ");
+        String name = scanner.nextLine();
+        String problem = Employee.nameProblem(name);
+        if (problem != null) {
+            System.out.println("Invalid name: it " + problem + ".");
+            return;
+        }
+        System.out.println("Select Employee Type: 1-Salaried, 2-Hourly, 3-Commissioned");
+        int typeChoice = scanner.nextInt();
+
+        switch (typeChoice) {
+            case 1 -> {
+                System.out.print("Enter Salary: ");
+                double salary = scanner.nextDouble();
+                if (!Money.isAmount(salary)) {
+                    System.out.println("Invalid salary: out of range.");
+                    return;
+                }
+                addEmployee(new SalariedEmployee(EmployeeIdGenerator.generateId(), name, salary));
+            }
+            case 2 -> {
+                System.out.print("Enter Hourly Rate: ");
+                double hourlyRate = scanner.nextDouble();
+                if (!Money.isAmount(hourlyRate)) {
+                    System.out.println("Invalid hourly rate: out of range.");
+                    return;
+                }
+                System.out.print("Enter Hours Worked: ");
+                int hoursWorked = scanner.nextInt();
+                addEmployee(new HourlyEmployee(EmployeeIdGenerator.generateId(), name, hourlyRate, hoursWorked));
+            }
+            case 3 -> {
+                System.out.print("Enter Commission Rate (e.g., 0.1 for 10%): ");
+                double commissionRate = scanner.nextDouble();
+                if (!Money.isExactRate(commissionRate)) {
+                    System.out.println("Invalid commission rate: at most 6 decimal places.");
+                    return;
+                }
+                System.out.print("Enter Total Sales: ");
+                int totalSales = scanner.nextInt();
+                addEmployee(new CommissionedEmployee(EmployeeIdGenerator.generateId(), name, commissionRate, totalSales));
+            }
+            default -> System.out.println("Invalid Employee Type!");
+        }
+    }
+    private void updateEmployeeInteraction(Scanner scanner) {
+        if(employees.isEmpty()) {
+            System.out.println("No Employees To Update");
+            return;
+        }
+        int id = pickEmployeeId(scanner, "Update");
+
+        Employee employee = employees.get(id);
+        if (employee != null) {
+            EmployeeType type=employee.getEmployeeType();
+            switch (type){
+                case SALARIED :
+                    SalariedEmployee salariedEmployee=(SalariedEmployee) employee;
+                    System.out.printf("1) Name: %s\n2)Salary:%.2f",salariedEmployee.getName(),salariedEmployee.getSalary());
+                    System.out.print("\nWhat Trait to Edit ");
+                    int attributeChoice = scanner.nextInt();
+                    scanner.nextLine();
+                    System.out.print("Enter new value: ");
+                    String input = scanner.next();
+                    Object newValue = changedValue(input);
+
+
+                    switch (attributeChoice){
+                        case 1 :
+                            updateDetails(employee,"name",newValue);
+                            break;
+                        case 2 :
+                            updateDetails(employee,"salary",newValue);
+                            break;
+                        default:
+                            System.out.println("Invalid Option");
+                            return;
+
+
+
+                    }
+                    break;
+                case COMMISSIONED:
+                    CommissionedEmployee commissionedEmployee=(CommissionedEmployee) employee;
+                    System.out.printf("1)Name: %s\n 2)Commission Rate:%f\n3)Total Sales:%d\n",commissionedEmployee.getName(),commissionedEmployee.getCommissionRate(),commissionedEmployee.getTotalSales());
+                    System.out.print("\nWhat Trait to Edit\n");
+                    attributeChoice = scanner.nextInt();
+                    scanner.nextLine();
+                    System.out.print("Enter new value: ");
+                    input = scanner.next();
+                    newValue = changedValue(input);
+
+
+                    switch (attributeChoice){
+                        case 1 :
+                            updateDetails(employee,"name",newValue);
+                            break;
+                        case 2 :
+                            updateDetails(employee,"commissionRate",newValue);
+                            break;
+                        case 3 :
+                            updateDetails(employee,"totalSales",newValue);
+                            break;
+                        default:
+                            System.out.println("Invalid Option");
+                            return;
+
+
+
+
+                    }
+                    break;
+                case HOURLY :
+                    HourlyEmployee hourlyEmployee=(HourlyEmployee) employee;
+                    System.out.printf("1)Name: %s\n2)Hourly Rate:%.2f\n3)Worked Hours:%d",hourlyEmployee.getName(),hourlyEmployee.getHourlyRate(),hourlyEmployee.getHoursWorked());
+                    System.out.print("\nWhat Trait to Edit ");
+                    attributeChoice = scanner.nextInt();
+                    scanner.nextLine();
+                    System.out.print("Enter new value: ");
+                    input = scanner.next();
+                    newValue = changedValue(input);
+
+
+                    switch (attributeChoice){
+                        case 1 :
+                            updateDetails(employee,"name",newValue);
+                            break;
+                        case 2 :
+                            updateDetails(employee,"hourlyRate",newValue);
+                            break;
+                        case 3 :
+                            updateDetails(employee,"hoursWorked",newValue);
+                            break;
+                        default:
+                            System.out.println("Invalid Option");
+
+                            return;
+
+
+                            
+                    }
+
+            }
+
+
+
+
+//            Object newValue = scanner.nextLine();
+
+//            updateEmployeeDetails(employee, attribute, newValue);
+
+            try {
+                saveEmployee(id); // Save employee to file after updating details
+            } catch (IOException e) {
+                System.out.println("Error saving employees to file: " + e.getMessage());
+            }
+
+            System.out.println("Employee details updated successfully!");
+        } else {
+            System.out.println("Employee not found!");
+        }
+    }
+    // Whether a changed value is a number an int holds exactly, as hours worked and total sales must be
+    static boolean isWholeNumber(Object value) {
+        if (!(value instanceof Number)) return false;
+        double number = ((Number) value).doubleValue();
+        return number == Math.rint(number) && number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE;
+    }
+
+    // Integer if the digits fit one, otherwise Double
+    private static Number wholeNumber(String digits) {
+        double value = Double.parseDouble(digits);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) return value;
+        return Integer.parseInt(digits);
+    }
+
+    public static Object changedValue(String input){
+
+        Object parsedValue;
+        if (input.matches("-?\\d+")) {
+            parsedValue = wholeNumber(input); // Integer, or Double for range checks to refuse
+        } else if (input.matches("-?\\d*\\.\\d+")) {
+            parsedValue = Double.parseDouble(input); // Double
+        } else if (input.equalsIgnoreCase("true") || input.equalsIgnoreCase("false")) {
+            parsedValue = Boolean.parseBoolean(input); // Boolean
+        } else {
+            parsedValue = input; // String
+        }
+        return parsedValue;
+
+
+    }
+
+    // Change one attribute. The stored employee is replaced by a changed copy, so payroll runs
+    // working on a snapshot never see a half-applied update.
+    public boolean updateDetails(Employee employee, String attribute, Object newValue) {
+        int employeeId = employee.getEmployeeId();
+        long start = System.nanoTime();
+        lockEmployee(employeeId);
+        try {
+            Employee current = employees.get(employeeId);
+            if (current == null) {
+                String reason = applyDetail(employee, attribute, newValue); // Not stored, so no one else can see it
+                if (reason != null) System.out.println(reason);
+                return reason == null;
+            }
+            Employee changed = current.copy();
+            String reason = applyDetail(changed, attribute, newValue);
+            if (reason != null) {
+                System.out.println(reason);
+                rejectedUpdates.increment();
+                return false;
+            }
+            aggregates.replace(current, changed); // First, as in storeEmployee()
+            employees.put(changed);
+            if (searchIndex != null) {
+                searchIndex.replace(current, changed);
+            }
+            if (columns != null) {
+                columns.updateDetails(employeeId, attribute, newValue);
+            }
+            return true;
+        } finally {
+            unlockEmployee(employeeId);
+            updateTimes.recordSince(start);
+        }
+    }
+
+    // Change several attributes at once and queue the change for the journal, without console output.
+    // Either every change is made or, if any is invalid, none is and IllegalArgumentException says why.
+    // Returns the changed employee, or null if there is no employee with that id.
+    Employee updateEmployee(int employeeId, Map<String, Object> changes) throws IOException {
+        long start = System.nanoTime();
+        Employee changed;
+        lockEmployee(employeeId);
+        try {
+            Employee current = employees.get(employeeId);
+            if (current == null) return null;
+            changed = current.copy();
+            for (Map.Entry<String, Object> change : changes.entrySet()) {
+                String reason = applyDetail(changed, change.getKey(), change.getValue());
+                if (reason != null) {
+                    rejectedUpdates.increment();
+                    throw new IllegalArgumentException(change.getKey() + ": " + reason);
+                }
+            }
+            aggregates.replace(current, changed); // First, as in storeEmployee()
+            employees.put(changed);
+            if (searchIndex != null) {
+                searchIndex.replace(current, changed);
+            }
+            if (columns != null) {
+                changes.forEach((attribute, newValue) -> columns.updateDetails(employeeId, attribute, newValue));
+            }
+            journal.recordUpsert(changed);
+        } finally {
+            unlockEmployee(employeeId);
+            updateTimes.recordSince(start);
+        }
+        compactJournalIfNeeded();
+        return changed;
+    }
+
+    // Set one attribute; returns null if it was set, otherwise why not
+    private String applyDetail(Employee employee, String attribute, Object newValue) {
+        if (newValue == null) {
+            return "Invalid value: null is not allowed.";
+        }
+    
+        switch (attribute) {
+            case "name":
+                if (!(newValue instanceof String)) {
+                    return "Invalid value for name.";
+                }
+                String problem = Employee.nameProblem((String) newValue);
+                if (problem != null) {
+                    return "Invalid value for name: it " + problem + ".";
+                }
+                employee.setName((String) newValue);
+                break;
+    
+            case "salary":
+                if (newValue instanceof Number && employee instanceof SalariedEmployee) {
+                    if (!Money.isAmount(((Number) newValue).doubleValue())) {
+                        return "Invalid value for salary: out of range.";
+                    }
+                    ((SalariedEmployee) employee).setSalary(((Number) newValue).doubleValue()) ;
+                } else {
+                    return "Invalid value for salary.";
+                }
+                break;
+    
+            case "hoursWorked":
+                if (isWholeNumber(newValue) && employee instanceof HourlyEmployee) {
+                    ((HourlyEmployee) employee).setHoursWorked(((Number) newValue).intValue());
+                } else {
+                    return "Invalid value or employee type for hoursWorked.";
+                }
+                break;
+    
+            case "totalSales":
+                if (isWholeNumber(newValue) && employee instanceof CommissionedEmployee) {
+                    ((CommissionedEmployee) employee).setTotalSales( ((Number) newValue).intValue());
+                } else {
+                    return "Invalid value or employee type for totalSales.";
+                }
+                break;
+    
+            case "hourlyRate":
+                if (newValue instanceof Number && employee instanceof HourlyEmployee) {
+                    if (!Money.isAmount(((Number) newValue).doubleValue())) {
+                        return "Invalid value for hourlyRate: out of range.";
+                    }
+                    ((HourlyEmployee) employee).setHourlyRate( ((Number) newValue).doubleValue());
+                } else {
+                    return "Invalid value or employee type for hourlyRate.";
+                }
+                break;
+    
+            case "commissionRate":
+                if (newValue instanceof Number && employee instanceof CommissionedEmployee) {
+                    if (!Money.isExactRate(((Number) newValue).doubleValue())) {
+                        return "Invalid value for commissionRate: at most 6 decimal places.";
+                    }
+                    ((CommissionedEmployee) employee).setCommissionRate(  ((Number) newValue).doubleValue());
+                } else {
+                    return "Invalid value or employee type for commissionRate.";
+                }
+                break;
+    
+            default:
+                return "Attribute not found or not updatable.";
+        }
+        if (!employee.isPayInRange()) {
+            return "Invalid value for " + attribute + ": the pay would be out of range.";
+        }
+        return null;
+    }
+    
+    public void updateEmployeeDetails(Employee employee, String attribute, Object newValue) {
+
+     boolean IsThereUpdate =   updateDetails(employee,attribute, newValue);
+     if(!IsThereUpdate)
+            return;
+        try {
+            saveEmployee(employee.getEmployeeId()); // Save changes after updating an employee
+        } catch (IOException e) {
+            saveFailures.increment();
+            System.out.println("Error saving employee data.");
+        }
+        System.out.println("Employee details updated successfully!");
+
+    }
+
+
+    public void removeEmployee(int employeeId) {
+        try {
+            if (dropEmployee(employeeId)) { // Saves the removal to the journal too
+                System.out.println("Employee removed successfully!");
+                compactJournalIfNeeded();
+            } else {
+                System.out.println("Employee not found!");
+            }
+        } catch (IOException e) {
+            saveFailures.increment();
+            System.out.println("Error saving employee data.");
+        }
+    }
+
+    private void removeEmployeeInteraction(Scanner scanner) {
+        int id = pickEmployeeId(scanner, "Remove");
+        removeEmployee(id);
+    }
+
+    // Ask for the start of a name and list the employees it matches, or page through everyone
+    // in id order on a blank answer, then read the id of the employee to act on
+    private int pickEmployeeId(Scanner scanner, String action) {
+        System.out.print("Name starts with (Enter to page through everyone): ");
+        String prefix = scanner.nextLine().trim();
+        if (prefix.isEmpty()) {
+            EmployeePage page = listEmployees(EmployeePage.START, PICKER_LIMIT);
+            printChoices(page.getEmployees());
+            while (page.hasMore()) {
+                System.out.print("Enter Employee ID to " + action + " (Enter for the next page): ");
+                String answer = scanner.nextLine().trim();
+                if (!answer.isEmpty()) return parseEmployeeId(answer);
+                page = listEmployees(page.getNextCursor(), PICKER_LIMIT);
+                printChoices(page.getEmployees());
+            }
+        } else {
+            List<Employee> matches = findByNamePrefix(prefix, PICKER_LIMIT + 1);
+            printChoices(matches.subList(0, Math.min(matches.size(), PICKER_LIMIT)));
+            if (matches.isEmpty()) {
+                System.out.println("No employee name starts with \"" + prefix + "\"");
+            } else if (matches.size() > PICKER_LIMIT) {
+                System.out.println("... more match, type more of the name to narrow the list");
+            }
+        }
+        System.out.print("Enter Employee ID to " + action + ": " + "\n");
+        return parseEmployeeId(scanner.nextLine().trim());
+    }
+
+    private static void printChoices(List<Employee> choices) {
+        for (Employee value : choices) {
+            System.out.println("ID: " + value.getEmployeeId() + ", Name: " + value.getName()); // Accessing Employee properties
+        }
+    }
+
+    // An id that matches no employee when the answer is not a number
+    private static int parseEmployeeId(String answer) {
+        try {
+            return Integer.parseInt(answer);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // One page of employees in id order: up to limit after the cursor, which is EmployeePage.START
+    // for the first page and then the previous page's getNextCursor(). Reads take no lock, and
+    // employees added or removed between pages do not shift them.
+    public EmployeePage listEmployees(int cursor, int limit) {
+        return employees.page(cursor, limit);
+    }
+
+    // Employees whose name starts with the prefix, ignoring case, in name order (id order in lazy
+    // mode); at most limit of them
+    public List<Employee> findByNamePrefix(String prefix, int limit) {
+        long start = System.nanoTime();
+        try {
+            if (searchIndex == null) {
+                return scanEmployees(EmployeePage.START, limit,
+                        employee -> employee.getName().regionMatches(true, 0, prefix, 0, prefix.length()));
+            }
+            return employeesWithIds(searchIndex.byNamePrefix(prefix, limit));
+        } finally {
+            searchTimes.recordSince(start);
+        }
+    }
+
+    // Employees of the type in id order, starting after afterId; at most limit of them
+    public List<Employee> findByType(EmployeeType type, int afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            if (searchIndex == null) {
+                return scanEmployees(afterId, limit, employee -> employee.getEmployeeType() == type);
+            }
+            return employeesWithIds(searchIndex.byType(type, afterId, limit));
+        } finally {
+            searchTimes.recordSince(start);
+        }
+    }
+
+    // Salaried employees with a salary in [min, max], lowest first (id order in lazy mode); at most limit of them
+    public List<Employee> findBySalaryRange(double min, double max, int limit) {
+        return findByRate(EmployeeType.SALARIED, Money.ofUnits(min), Money.ofUnits(max), limit);
+    }
+
+    // Hourly employees with an hourly rate in [min, max], lowest first (id order in lazy mode); at most limit of them
+    public List<Employee> findByHourlyRateRange(double min, double max, int limit) {
+        return findByRate(EmployeeType.HOURLY, Money.ofUnits(min), Money.ofUnits(max), limit);
+    }
+
+    // Commissioned employees with a commission rate in [min, max], lowest first (id order in lazy mode);
+    // at most limit of them
+    public List<Employee> findByCommissionRateRange(double min, double max, int limit) {
+        return findByRate(EmployeeType.COMMISSIONED, Money.rateOf(min), Money.rateOf(max), limit);
+    }
+
+    private List<Employee> findByRate(EmployeeType type, long min, long max, int limit) {
+        long start = System.nanoTime();
+        try {
+            if (searchIndex == null) {
+                return scanEmployees(EmployeePage.START, limit, employee -> employee.getEmployeeType() == type
+                        && EmployeeSearchIndex.rateOf(employee) >= min && EmployeeSearchIndex.rateOf(employee) <= max);
+            }
+            return employeesWithIds(searchIndex.byRate(type, min, max, limit));
+        } finally {
+            searchTimes.recordSince(start);
+        }
+    }
+
+    // Read through the employees after a cursor, page by page, for the first limit that match
+    private List<Employee> scanEmployees(int cursor, int limit, Predicate<Employee> matches) {
+        List<Employee> found = new ArrayList<>();
+        EmployeePage page;
+        do {
+            page = employees.page(cursor, SCAN_PAGE_SIZE);
+            for (Employee employee : page.getEmployees()) {
+                if (matches.test(employee)) {
+                    found.add(employee);
+                    if (found.size() == limit) return found;
+                }
+            }
+            cursor = page.getNextCursor();
+        } while (page.hasMore());
+        return found;
+    }
+
+    // An id can be removed between the index lookup and here; such ids are skipped
+    private List<Employee> employeesWithIds(int[] ids) {
+        List<Employee> found = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Employee employee = employees.get(id);
+            if (employee != null) found.add(employee);
+        }
+        return found;
+    }
+
+    // Print the running totals, overall and per type; nothing is recomputed
+    public void calculateTotalPayroll() {
+        long start = System.nanoTime();
+        PayrollTotals totals = aggregates.totals();
+        System.out.println("Total Payroll: $" + Money.format(totals.gross));
+        System.out.printf("%d employees, tax $%s, net $%s%n", totals.employees,
+                Money.format(totals.tax), Money.format(totals.net));
+        for (EmployeeType type : EmployeeType.values()) {
+            PayrollTotals typeTotals = aggregates.totals(type);
+            System.out.printf("  %-12s %8d employees, gross $%s, tax $%s, net $%s%n", type, typeTotals.employees,
+                    Money.format(typeTotals.gross), Money.format(typeTotals.tax), Money.format(typeTotals.net));
+        }
+        totalPayrollTimes.recordSince(start);
+    }
+
+    public PayrollTotals getPayrollTotals() {
+        return aggregates.totals();
+    }
+
+    public PayrollTotals getPayrollTotals(EmployeeType type) {
+        return aggregates.totals(type);
+    }
+
+    // Recompute the payroll over every employee and compare it with the running totals.
+    // Writers are held off meanwhile, so both sides see the same employees.
+    public boolean checkPayrollTotals() {
+        String differences;
+        long start = System.nanoTime();
+        storeLock.writeLock().lock();
+        try {
+            printRecomputedPayroll();
+            differences = aggregates.check(employees.values());
+        } finally {
+            storeLock.writeLock().unlock();
+            checkTotalsTimes.recordSince(start);
+        }
+        if (differences.isEmpty()) {
+            System.out.println("Running payroll totals match the full recompute.");
+            return true;
+        }
+        System.out.print("Running payroll totals differ from the full recompute:\n" + differences);
+        return false;
+    }
+
+    private void printRecomputedPayroll() {
+        if (columns != null) {
+            long start = System.nanoTime();
+            PayrollTotals totals = columns.totals();
+            System.out.println("Recomputed Payroll: $" + Money.format(totals.gross));
+            System.out.printf("Columnar payroll: %d employees in %.2f ms%n", totals.employees, (System.nanoTime() - start) / 1_000_000.0);
+            return;
+        }
+        PayrollRunResult result = payrollRun.run(employees.values()); // Writers are held off
+        System.out.println("Recomputed Payroll: $" + Money.format(result.getGross()));
+        System.out.println(result.report());
+    }
+
+    // Compress every pay stub into a payslips-<timestamp>.archive file for this run and record the
+    // run's pay, tax and net in the ledger. The ledger run is only committed once the archive is complete.
+    public void generatePayslips() {
+        if (employees.isEmpty()) {
+            System.out.println("No employees in the system!");
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        File file = new File("payslips-" + now.format(PAYSLIP_RUN_FORMAT) + PayslipArchive.EXTENSION);
+        long start = System.nanoTime();
+        Collection<Employee> snapshot = employeesById();
+        try (PayrollLedger.RunWriter run = ledger.beginRun(now.toLocalDate())) {
+            PayslipArchiveResult archived = payslipArchiver.write(snapshot, file);
+            for (Employee employee : snapshot) {
+                long pay = employee.calculatePay();
+                run.add(employee.getEmployeeId(), pay, TaxCalculator.calculateTax(employee, pay));
+            }
+            run.commit();
+            payslipsWritten.add(archived.getPayslips());
+            payslipsCached.add(archived.getCachedPayslips());
+            System.out.println("Payslips archived to " + file + ": " + archived.report());
+        } catch (IOException e) {
+            payslipFailures.increment();
+            System.out.println("Error writing payslips: " + e.getMessage());
+        } finally {
+            payslipTimes.recordSince(start);
+        }
+    }
+
+    // Print one employee's pay stub from a payslip archive
+    public static void printArchivedPayslip(File archive, int employeeId) {
+        try (PayslipArchive payslips = PayslipArchive.open(archive)) {
+            String payslip = payslips.payslip(employeeId);
+            System.out.print(payslip != null ? payslip : "No payslip for employee " + employeeId + " in " + archive + "\n");
+        } catch (IOException e) {
+            System.out.println("Error reading payslip archive: " + e.getMessage());
+        }
+    }
+
+    // Write this run's bank batch files and check register to a payments-<timestamp> directory, ready
+    // to hand to the banks
+    public void generatePaymentFiles() {
+        if (employees.isEmpty()) {
+            System.out.println("No employees in the system!");
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        File directory = new File("payments-" + now.format(PAYSLIP_RUN_FORMAT));
+        long start = System.nanoTime();
+        try {
+            DisbursementResult result = disbursementRun.run(employeesById(), now.toLocalDate(), directory);
+            for (PaymentFile file : result.getFiles()) {
+                System.out.printf("%s: %d payments, $%s%n", file.getFile(), file.getPayments(), Money.format(file.getTotal()));
+            }
+            paymentsWritten.add(result.getPayments());
+            System.out.printf("%d payments in %d files in %.2f ms (%.0f payments/s), %d employees skipped%n",
+                    result.getPayments(), result.getFiles().size(), result.getWallNanos() / 1_000_000.0,
+                    result.getPaymentsPerSecond(), result.getSkipped());
+        } catch (IOException e) {
+            paymentFileFailures.increment();
+            System.out.println("Error writing payment files: " + e.getMessage());
+        } finally {
+            paymentFileTimes.recordSince(start);
+        }
+    }
+
+    // Print what one employee was paid in the payroll runs between two dates
+    private void payHistoryInteraction(Scanner scanner) {
+        System.out.print("Enter Employee ID: ");
+        int id = scanner.nextInt();
+        scanner.nextLine(); // Consume newline
+        try {
+            System.out.print("From date (yyyy-MM-dd): ");
+            LocalDate from = LocalDate.parse(scanner.nextLine().trim());
+            System.out.print("To date (yyyy-MM-dd): ");
+            LocalDate to = LocalDate.parse(scanner.nextLine().trim());
+            printPayHistory(id, from, to);
+        } catch (DateTimeParseException e) {
+            System.out.println("Invalid date: " + e.getParsedString());
+        }
+    }
+
+    public void printPayHistory(int employeeId, LocalDate from, LocalDate to) {
+        try {
+            List<LedgerEntry> entries = ledger.history(employeeId, from, to);
+            if (entries.isEmpty()) {
+                System.out.println("No payroll runs for employee " + employeeId + " between " + from + " and " + to);
+                return;
+            }
+            long gross = 0;
+            long tax = 0;
+            for (LedgerEntry entry : entries) {
+                System.out.printf("%s  run %d: gross $%s, tax $%s, net $%s%n", entry.getPayDate(), entry.getRunId(),
+                        Money.format(entry.getGross()), Money.format(entry.getTax()), Money.format(entry.getNet()));
+                gross += entry.getGross();
+                tax += entry.getTax();
+            }
+            System.out.printf("Total over %d runs: gross $%s, tax $%s, net $%s%n", entries.size(),
+                    Money.format(gross), Money.format(tax), Money.format(gross - tax));
+        } catch (IOException e) {
+            ledgerFailures.increment();
+            System.out.println("Error reading the payroll ledger: " + e.getMessage());
+        }
+    }
+
+    private static Object parseInput(String input) {
+        // Try to parse as Integer
+        try {
+            return Integer.parseInt(input);
+        } catch (NumberFormatException ignored) {}
+
+        // Try to parse as Double
+        try {
+            return Double.parseDouble(input);
+        } catch (NumberFormatException ignored) {}
+
+        // Try to parse as Boolean
+        if (input.equalsIgnoreCase("true") || input.equalsIgnoreCase("false")) {
+            return Boolean.parseBoolean(input);
+        }
+
+        // If all parsing fails, return as String
+        return input;
+
+        // teeesting some git-hub
+    }
+}
\ No newline at end of file
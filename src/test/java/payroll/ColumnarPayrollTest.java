@@ -0,0 +1,62 @@
+package payroll;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarPayrollTest {
+    // Ids far from 0, in either direction, take entries around the ids in use, not an array up to them
+    @Test
+    void idsFarFromZeroAreKeptRelativeToTheFirst() {
+        ColumnarPayroll columns = new ColumnarPayroll();
+        int[] ids = {2_000_000_000, 2_000_000_005, 1_999_999_990, 2_000_000_300, 2_000_000_200};
+        long gross = 0;
+        for (int i = 0; i < ids.length; i++) {
+            Employee employee = i % 2 == 0
+                    ? new SalariedEmployee(ids[i], "Employee " + i, 40_000 + i)
+                    : new HourlyEmployee(ids[i], "Employee " + i, 20.5, 100 + i);
+            columns.addEmployee(employee);
+            gross += employee.calculatePay();
+        }
+        assertEquals(ids.length, columns.size());
+        assertEquals(gross, columns.totals().gross);
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals("Employee " + i, columns.getEmployee(ids[i]).getName());
+        }
+        assertNull(columns.getEmployee(1_999_999_989));
+        assertNull(columns.getEmployee(101));
+        assertNull(columns.getEmployee(Integer.MIN_VALUE));
+
+        assertTrue(columns.removeEmployee(1_999_999_990));
+        assertFalse(columns.removeEmployee(1_999_999_990));
+        assertTrue(columns.updateDetails(2_000_000_300, "name", "Last"));
+        assertEquals("Last", columns.getEmployee(2_000_000_300).getName());
+        assertEquals(ids.length - 1, columns.size());
+
+        assertThrows(IllegalArgumentException.class, () -> columns.addEmployee(new SalariedEmployee(Integer.MIN_VALUE, "Too far", 1)));
+        assertEquals(ids.length - 1, columns.size());
+
+        ColumnarPayroll negative = new ColumnarPayroll();
+        negative.addEmployee(new SalariedEmployee(-5, "Below zero", 1_000));
+        negative.addEmployee(new SalariedEmployee(-500, "Further below", 2_000));
+        assertEquals("Below zero", negative.getEmployee(-5).getName());
+        assertEquals("Further below", negative.getEmployee(-500).getName());
+    }
+
+    // Pay too large to tax is refused on the way in, so the unchecked multiply in totals() never overflows
+    @Test
+    void payOutOfRangeIsRefused() {
+        ColumnarPayroll columns = new ColumnarPayroll();
+        assertThrows(IllegalArgumentException.class,
+                () -> columns.addEmployee(new HourlyEmployee(101, "Too much", 50_000_000_000.0, 2_000_000)));
+        assertEquals(0, columns.size());
+
+        HourlyEmployee hourly = new HourlyEmployee(102, "Bob Jones", 10_000.0, 160);
+        columns.addEmployee(hourly);
+        assertFalse(columns.updateDetails(102, "hoursWorked", Integer.MAX_VALUE));
+        assertFalse(columns.updateDetails(102, "hourlyRate", 1e15)); // Not an amount
+        assertFalse(columns.updateDetails(102, "hourlyRate", 1e9)); // An amount, but not 160 times over
+        assertTrue(columns.updateDetails(102, "hoursWorked", 170));
+        assertEquals(Math.multiplyExact(hourly.getHourlyRateCents(), 170L), columns.totals().gross);
+    }
+}
@@ -0,0 +1,65 @@
+package payroll;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CredentialStoreTest {
+    @TempDir
+    File directory;
+
+    // A plain-text password is everything after the first comma, and is gone from the file once hashed
+    @Test
+    void legacyPasswordsMayHoldCommas() throws IOException {
+        File file = new File(directory, "user_credentials.txt");
+        Files.writeString(file.toPath(), "alice,secret\nbob,a,b,c,d\ncarol,x,y\n");
+        CredentialStore store = new CredentialStore(file);
+        store.load();
+        assertTrue(store.verify("alice", "secret"));
+        assertTrue(store.verify("bob", "a,b,c,d"));
+        assertTrue(store.verify("carol", "x,y"));
+        assertFalse(store.verify("bob", "a"));
+        assertFalse(Files.readString(file.toPath()).contains("a,b,c,d"));
+
+        CredentialStore reloaded = new CredentialStore(file);
+        reloaded.load();
+        assertTrue(reloaded.verify("bob", "a,b,c,d"));
+    }
+
+    // A user whose line could not be written is not registered, and may be registered again
+    @Test
+    void failedRegistrationsLeaveNoUser() throws IOException {
+        File file = new File(directory, "user_credentials.txt");
+        assertTrue(file.mkdir()); // Nothing can be appended to a directory
+        CredentialStore store = new CredentialStore(file);
+        assertThrows(IOException.class, () -> store.register("dave", "password"));
+        assertFalse(store.contains("dave"));
+        assertFalse(store.verify("dave", "password"));
+
+        assertTrue(file.delete());
+        assertTrue(store.register("dave", "password"));
+        assertTrue(store.verify("dave", "password"));
+        assertFalse(store.register("dave", "other"));
+    }
+
+    // A username that would not read back as written is refused, so no other user appears on reload
+    @Test
+    void usernamesThatWouldNotReadBackAreRefused() throws IOException {
+        File file = new File(directory, "user_credentials.txt");
+        CredentialStore store = new CredentialStore(file);
+        for (String username : new String[]{"eve,pbkdf2-sha256", "eve\nmallory", "eve\u0000", "", "   "}) {
+            assertThrows(IllegalArgumentException.class, () -> store.register(username, "password"), username);
+        }
+        assertTrue(store.register("eve", "password"));
+
+        CredentialStore reloaded = new CredentialStore(file);
+        reloaded.load();
+        assertTrue(reloaded.verify("eve", "password"));
+        assertEquals(1, Files.readAllLines(file.toPath()).size());
+    }
+}
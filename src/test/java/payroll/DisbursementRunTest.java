@@ -0,0 +1,144 @@
+package payroll;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Payment files from DisbursementRun handed to StubBankReceiver: every file written is accepted with
+// the payments and total the run reported, and a file changed after writing is rejected
+class DisbursementRunTest {
+    private static final LocalDate PAY_DATE = LocalDate.of(2024, 5, 31);
+    private static final int LINE = DisbursementRun.RECORD_LENGTH + 1;
+
+    @TempDir
+    File directory;
+
+    private final StubBankReceiver bank = new StubBankReceiver();
+    private Employee[] employees;
+    private DisbursementResult result;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        List<Employee> list = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            int id = 101 + i;
+            switch (i % 3) {
+                case 0:
+                    list.add(new SalariedEmployee(id, "Salaried " + i, 40_000 + 10 * i));
+                    break;
+                case 1:
+                    list.add(new HourlyEmployee(id, "Hourly " + i, 20.25, i));
+                    break;
+                default:
+                    list.add(new CommissionedEmployee(id, "Commissioned " + i, 0.05, 1_000 * i));
+                    break;
+            }
+        }
+        list.get(3).setPaymentMethod("Cash"); // No file for it
+        list.get(6).setPaymentDetails("Account:"); // No account number
+        ((HourlyEmployee) list.get(1)).setHoursWorked(0); // No net pay
+        employees = list.toArray(new Employee[0]);
+        // Small partitions, so that every file is put together from several of them
+        result = new DisbursementRun(ForkJoinPool.commonPool(), 16).run(employees, PAY_DATE, directory);
+    }
+
+    @Test
+    void everyFileIsAcceptedWithTheRunsCountsAndTotals() throws IOException {
+        Map<String, Integer> payments = new HashMap<>();
+        Map<String, Long> totals = new HashMap<>();
+        int skipped = 0;
+        for (Employee employee : employees) {
+            long pay = employee.calculatePay();
+            long net = pay - TaxCalculator.calculateTax(employee, pay);
+            String method = employee.getPaymentMethod();
+            String code = method.equals("Check") ? DisbursementRun.CHECK_REGISTER
+                    : method.startsWith("Bank ") ? method.substring(5) : null;
+            if (code == null || net <= 0 || employee.getPaymentDetails().equals("Account:")) {
+                skipped++;
+                continue;
+            }
+            payments.merge(code, 1, Integer::sum);
+            totals.merge(code, net, Long::sum);
+        }
+
+        assertEquals(payments.keySet().size(), result.getFiles().size());
+        assertEquals(skipped, result.getSkipped());
+        assertEquals(3, skipped); // Cash, no account number, and the hourly employee with no hours
+        for (PaymentFile file : result.getFiles()) {
+            BankAcknowledgement ack = bank.receive(file.getFile());
+            assertTrue(ack.isAccepted(), () -> file.getFile() + ": " + ack.getReason());
+            assertEquals(file.getCode(), ack.getCode());
+            assertEquals(payments.get(file.getCode()), ack.getPayments());
+            assertEquals(totals.get(file.getCode()), ack.getTotal());
+            assertEquals(file.getPayments(), ack.getPayments());
+            assertEquals(file.getTotal(), ack.getTotal());
+            assertEquals((file.getPayments() + 2L) * LINE, file.getFile().length());
+        }
+    }
+
+    @Test
+    void changedFilesAreRejected() throws IOException {
+        File file = result.getFiles().get(0).getFile();
+        byte[] original = Files.readAllBytes(file.toPath());
+        int records = original.length / LINE;
+
+        byte[] wrongCount = original.clone();
+        wrongCount[(records - 1) * LINE + 10]++; // Last digit of the trailer's payment count
+        assertRejected(file, wrongCount, "Trailer declares");
+
+        byte[] wrongAmount = original.clone();
+        wrongAmount[LINE + 75] = (byte) (wrongAmount[LINE + 75] == '9' ? '8' : wrongAmount[LINE + 75] + 1); // First payment's amount
+        assertRejected(file, wrongAmount, "Trailer declares");
+
+        byte[] swapped = original.clone();
+        System.arraycopy(original, LINE, swapped, 2 * LINE, LINE);
+        System.arraycopy(original, 2 * LINE, swapped, LINE, LINE);
+        assertRejected(file, swapped, "out of order");
+
+        byte[] unknownType = original.clone();
+        unknownType[LINE] = 'X';
+        assertRejected(file, unknownType, "unknown type");
+
+        byte[] badAmount = original.clone();
+        badAmount[LINE + 61] = ' ';
+        assertRejected(file, badAmount, "bad employee id or amount");
+
+        byte[] torn = new byte[original.length - 1]; // A payment one character short
+        System.arraycopy(original, 0, torn, 0, LINE + 40);
+        System.arraycopy(original, LINE + 41, torn, LINE + 40, original.length - LINE - 41);
+        assertRejected(file, torn, "is not " + DisbursementRun.RECORD_LENGTH + " characters");
+
+        byte[] noTrailer = new byte[original.length - LINE];
+        System.arraycopy(original, 0, noTrailer, 0, noTrailer.length);
+        assertRejected(file, noTrailer, "no trailer");
+
+        byte[] afterTrailer = new byte[original.length + LINE];
+        System.arraycopy(original, 0, afterTrailer, 0, original.length);
+        System.arraycopy(original, LINE, afterTrailer, original.length, LINE);
+        assertRejected(file, afterTrailer, "follows the trailer");
+
+        assertRejected(file, Arrays.copyOfRange(original, LINE, original.length), "does not start with a header");
+        assertRejected(file, new byte[0], "empty");
+    }
+
+    private void assertRejected(File original, byte[] content, String reason) throws IOException {
+        File changed = new File(directory, "changed-" + original.getName());
+        Files.write(changed.toPath(), content);
+        BankAcknowledgement ack = bank.receive(changed);
+        assertFalse(ack.isAccepted(), reason);
+        assertTrue(ack.getReason().contains(reason), () -> "expected \"" + reason + "\" but was: " + ack.getReason());
+    }
+}
@@ -0,0 +1,37 @@
+package payroll;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmployeeTest {
+    // A copy is the same employee until it is changed: same payment method, details and version, and
+    // so the same pay stub byte for byte
+    @Test
+    void copiesKeepEverythingOnThePayStub() {
+        List<Employee> employees = List.of(new SalariedEmployee(101, "Alice Smith", 85_000),
+                new HourlyEmployee(102, "Bob Jones", 27.5, 160),
+                new CommissionedEmployee(103, "Carol White", 0.07, 240_000));
+        employees.get(0).setPaymentMethod("Cash");
+        employees.get(1).setPaymentDetails("Account: 1234");
+        employees.get(2).setPaymentMethod("Bank QNB");
+        employees.get(2).setPaymentDetails("Account: 5678");
+
+        for (Employee employee : employees) {
+            Employee copy = employee.copy();
+            assertNotSame(employee, copy);
+            assertEquals(employee.getPaymentMethod(), copy.getPaymentMethod());
+            assertEquals(employee.getPaymentDetails(), copy.getPaymentDetails());
+            assertEquals(employee.getVersion(), copy.getVersion());
+            assertEquals(stub(employee), stub(copy));
+        }
+    }
+
+    private static String stub(Employee employee) {
+        StringBuilder out = new StringBuilder();
+        employee.appendPayStub(out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,155 @@
+package payroll;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compaction in lazy mode: a snapshot written from capture() holds the employees as they were then,
+// and reopening it leaves in memory only the changes made after the capture
+class LazyEmployeeIndexTest {
+    @TempDir
+    File directory;
+
+    private File snapshot;
+    private LazyEmployeeIndex index;
+    private final Map<Integer, Employee> expected = new TreeMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        snapshot = new File(directory, "employees.bin");
+        List<Employee> employees = new ArrayList<>();
+        for (int id = 101; id <= 1100; id++) {
+            employees.add(new SalariedEmployee(id, "Employee " + id, 30_000 + id));
+        }
+        BinaryEmployeeStore.write(snapshot, employees);
+        index = LazyEmployeeIndex.open(snapshot, 100);
+        employees.forEach(employee -> expected.put(employee.getEmployeeId(), employee));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Test
+    void reopeningKeepsOnlyTheChangesAfterTheCapture() throws IOException {
+        for (int id = 101; id <= 300; id++) {
+            put(new HourlyEmployee(id, "Changed " + id, 20.5, id % 160));
+        }
+        for (int id = 301; id <= 350; id++) {
+            remove(id);
+        }
+        for (int id = 5_000; id < 5_100; id++) {
+            put(new CommissionedEmployee(id, "Added " + id, 0.05, id));
+        }
+        assertNotNull(index.get(500)); // Cached from the old file
+        assertEquals(300, index.getChangedEmployees());
+
+        Collection<Employee> captured = index.capture();
+        Map<Integer, Employee> atCapture = new TreeMap<>(expected);
+        put(new SalariedEmployee(101, "Changed again", 1)); // Changed before the capture too
+        put(new SalariedEmployee(400, "Changed after", 2));
+        remove(102); // Changed before the capture
+        remove(401);
+        remove(5_000); // Added before the capture
+        put(new SalariedEmployee(9_000, "Added after", 3));
+        put(new SalariedEmployee(320, "Back again", 4)); // Removed before the capture
+
+        BinaryEmployeeStore.write(snapshot, captured);
+        index.reopen(snapshot, captured);
+
+        assertEquals(4, index.getChangedEmployees()); // 101, 400, 9000 and 320
+        assertEquals(expected.size(), index.size());
+        assertEquals(describe(expected.values()), describe(index.values()));
+        for (int id = 100; id <= 9_001; id++) {
+            assertSame(expected.get(id) == null, index.get(id) == null, "id " + id);
+            if (expected.get(id) != null) {
+                assertEquals(expected.get(id).getName(), index.get(id).getName());
+            }
+        }
+        EmployeePage page = index.page(399, 3);
+        assertEquals(List.of(400, 402, 403), page.getEmployees().stream().map(Employee::getEmployeeId).toList());
+
+        try (LazyEmployeeIndex restarted = LazyEmployeeIndex.open(snapshot, 100)) {
+            assertEquals(0, restarted.getChangedEmployees());
+            assertEquals(describe(atCapture.values()), describe(restarted.values()));
+        }
+    }
+
+    // Payroll runs, payslips and payment files read a capture a partition or block at a time, through
+    // the file rather than the cache, and come out as they do from the same employees in an array
+    @Test
+    void fullScansStreamFromACapture() throws IOException {
+        for (int id = 101; id <= 1100; id += 7) {
+            put(new HourlyEmployee(id, "Changed " + id, 20.5, id % 160));
+        }
+        remove(102);
+        Collection<Employee> captured = index.capture();
+        Employee[] employees = expected.values().toArray(new Employee[0]);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            PayrollRun payrollRun = new PayrollRun(pool, 16);
+            PayrollRunResult streamed = payrollRun.run(captured);
+            PayrollRunResult whole = payrollRun.run(employees);
+            assertEquals(whole.getGross(), streamed.getGross());
+            assertEquals(whole.getTax(), streamed.getTax());
+            assertEquals(employees.length, streamed.getEmployees());
+            assertEquals(whole.getPartitions().size(), streamed.getPartitions().size());
+            for (int i = 0; i < streamed.getPartitions().size(); i++) {
+                assertEquals(i, streamed.getPartitions().get(i).getPartition());
+            }
+
+            File archive = new File(directory, "payslips.archive");
+            assertEquals(employees.length, new PayslipArchiver(pool, PayslipArchiver.DEFAULT_LEVEL, null)
+                    .write(captured, archive).getPayslips());
+            try (PayslipArchive payslips = PayslipArchive.open(archive)) {
+                assertEquals(employees.length, payslips.size());
+                assertEquals(employees[500].generatePayStub() + System.lineSeparator(),
+                        payslips.payslip(employees[500].getEmployeeId()));
+            }
+
+            DisbursementRun disbursementRun = new DisbursementRun(pool, 16);
+            DisbursementResult fromCapture = disbursementRun.run(captured, LocalDate.of(2024, 5, 31), new File(directory, "streamed"));
+            DisbursementResult fromArray = disbursementRun.run(employees, LocalDate.of(2024, 5, 31), new File(directory, "whole"));
+            assertEquals(fromArray.getPayments(), fromCapture.getPayments());
+            assertEquals(fromArray.getFiles().size(), fromCapture.getFiles().size());
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(0, index.getCachedEmployees());
+    }
+
+    @Test
+    void onlyItsOwnCaptureCanBeReopened() {
+        assertThrows(IllegalArgumentException.class, () -> index.reopen(snapshot, List.of()));
+    }
+
+    private static List<String> describe(Collection<Employee> employees) {
+        List<String> described = new ArrayList<>();
+        employees.forEach(employee -> described.add(employee.getEmployeeId() + " " + employee.getName()));
+        return described;
+    }
+
+    private void put(Employee employee) {
+        index.put(employee);
+        expected.put(employee.getEmployeeId(), employee);
+    }
+
+    private void remove(int employeeId) {
+        assertNotNull(index.remove(employeeId));
+        expected.remove(employeeId);
+    }
+}
@@ -0,0 +1,92 @@
+package payroll;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayrollHttpServerTest {
+    private PayrollSystem system;
+    private PayrollHttpServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+    private String token;
+
+    @BeforeEach
+    void setUp() throws IOException, InterruptedException {
+        WorkingDirectory.clear();
+        system = new PayrollSystem();
+        assertTrue(system.registerUser("hr", "password"));
+        server = new PayrollHttpServer(system, new InetSocketAddress("localhost", 0), 16, 4);
+        server.start();
+        HttpResponse<String> login = send("POST", "login", "{\"username\": \"hr\", \"password\": \"password\"}");
+        assertEquals(200, login.statusCode(), login.body());
+        token = login.body().replaceAll(".*\"token\":\"([^\"]+)\".*", "$1");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+        system.close();
+    }
+
+    // Hours worked and total sales are whole numbers an int holds; anything else is refused, not cut down
+    @Test
+    void countsMustBeWholeNumbersInRange() throws IOException, InterruptedException {
+        for (String hours : new String[]{"12.9", "1e10", "-3000000000.0", "\"12\""}) {
+            HttpResponse<String> response = send("POST", "employees",
+                    "{\"name\": \"Bob Jones\", \"type\": \"HOURLY\", \"hourlyRate\": 27.5, \"hoursWorked\": " + hours + "}");
+            assertEquals(400, response.statusCode(), hours + ": " + response.body());
+        }
+        HttpResponse<String> sales = send("POST", "employees",
+                "{\"name\": \"Carol White\", \"type\": \"COMMISSIONED\", \"commissionRate\": 0.07, \"totalSales\": 2.5}");
+        assertEquals(400, sales.statusCode(), sales.body());
+        assertEquals(0, system.getPayrollTotals().employees);
+
+        HttpResponse<String> created = send("POST", "employees",
+                "{\"name\": \"Bob Jones\", \"type\": \"HOURLY\", \"hourlyRate\": 27.5, \"hoursWorked\": 160.0}");
+        assertEquals(201, created.statusCode(), created.body());
+        assertTrue(created.body().contains("\"hoursWorked\":160"), created.body());
+        String id = created.body().replaceAll(".*\"id\":(\\d+).*", "$1");
+
+        HttpResponse<String> changed = send("PATCH", "employees/" + id, "{\"hoursWorked\": 12.9}");
+        assertEquals(400, changed.statusCode(), changed.body());
+        assertEquals(160, ((HourlyEmployee) system.getEmployee(Integer.parseInt(id))).getHoursWorked());
+    }
+
+    // Numbers past an int are read and left to the field's checks: a salary may be one, hours may not
+    @Test
+    void largeNumbersReachTheFieldChecks() throws IOException, InterruptedException {
+        HttpResponse<String> created = send("POST", "employees",
+                "{\"name\": \"Ann Lee\", \"type\": \"SALARIED\", \"salary\": 3000000000}");
+        assertEquals(201, created.statusCode(), created.body());
+        assertTrue(created.body().contains("\"salary\":3000000000.00"), created.body());
+        String id = created.body().replaceAll(".*\"id\":(\\d+).*", "$1");
+
+        HttpResponse<String> hours = send("POST", "employees",
+                "{\"name\": \"Bob Jones\", \"type\": \"HOURLY\", \"hourlyRate\": 27.5, \"hoursWorked\": 3000000000}");
+        assertEquals(400, hours.statusCode(), hours.body());
+        HttpResponse<String> tooLarge = send("PATCH", "employees/" + id, "{\"salary\": 100000000000000}");
+        assertEquals(400, tooLarge.statusCode(), tooLarge.body());
+        HttpResponse<String> blank = send("PATCH", "employees/" + id, "{\"name\": \"  \"}");
+        assertEquals(400, blank.statusCode(), blank.body());
+        assertEquals("Ann Lee", system.getEmployee(Integer.parseInt(id)).getName());
+        assertEquals(300_000_000_000L, system.getPayrollTotals().gross);
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/api/" + path))
+                .method(method, HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
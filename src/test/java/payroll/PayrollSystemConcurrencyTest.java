@@ -0,0 +1,171 @@
+package payroll;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Sessions adding, changing and removing employees on many threads at once, some of them changing
+// the same employees: afterwards the index, the running totals and a restart from the journal must
+// all agree with each other and with what the threads did.
+class PayrollSystemConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 2_000;
+    private static final int SHARED = 64;
+
+    private PayrollSystem system;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        WorkingDirectory.clear();
+        system = new PayrollSystem();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (system != null) {
+            system.close();
+        }
+    }
+
+    @Test
+    void concurrentWritersLeaveIndexTotalsAndJournalConsistent() throws Exception {
+        Set<Integer> expected = new TreeSet<>();
+        int[] shared = new int[SHARED];
+        Random random = new Random(42);
+        for (int i = 0; i < SHARED; i++) {
+            Employee employee = newEmployee(random, i);
+            system.createEmployee(employee);
+            shared[i] = employee.getEmployeeId();
+            expected.add(employee.getEmployeeId());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Set<Integer>>> sessions = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int seed = t;
+                sessions.add(pool.submit(() -> {
+                    start.await();
+                    return runSession(new Random(seed), shared);
+                }));
+            }
+            start.countDown();
+            for (Future<Set<Integer>> session : sessions) {
+                expected.addAll(session.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        system.awaitPersisted();
+
+        Map<Integer, String> before = describeAll(system);
+        assertEquals(expected, before.keySet(), "employees in the index");
+        assertEquals(expected.size(), system.getPayrollTotals().employees);
+        assertEquals(sumOfPay(system), system.getPayrollTotals().gross);
+        assertTrue(system.checkPayrollTotals(), "running totals match a full recompute");
+
+        system.close();
+        system = new PayrollSystem(); // Snapshot plus journal replay
+        assertEquals(before, describeAll(system), "employees after replaying the journal");
+        assertEquals(expected.size(), system.getPayrollTotals().employees);
+        assertTrue(system.checkPayrollTotals(), "running totals match a full recompute after replay");
+    }
+
+    // One session's random mix of changes; returns the ids it added and did not remove
+    private Set<Integer> runSession(Random random, int[] shared) throws IOException {
+        List<Integer> own = new ArrayList<>();
+        Set<Integer> removed = new HashSet<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int choice = random.nextInt(100);
+            if (choice < 35 || own.isEmpty()) {
+                Employee employee = newEmployee(random, i);
+                system.createEmployee(employee);
+                own.add(employee.getEmployeeId());
+            } else if (choice < 70) {
+                int id = shared[random.nextInt(shared.length)];
+                assertNotNull(system.updateEmployee(id, change(system.getEmployee(id), random, i)));
+            } else if (choice < 85) {
+                int id = own.get(random.nextInt(own.size()));
+                assertNotNull(system.updateEmployee(id, change(system.getEmployee(id), random, i)));
+            } else {
+                int id = own.remove(random.nextInt(own.size()));
+                assertTrue(system.deleteEmployee(id));
+                assertFalse(system.deleteEmployee(id), "an employee is removed once");
+                assertNull(system.getEmployee(id));
+                removed.add(id);
+            }
+        }
+        Set<Integer> live = new HashSet<>(own);
+        live.removeAll(removed);
+        return live;
+    }
+
+    private static Employee newEmployee(Random random, int n) {
+        int id = EmployeeIdGenerator.generateId();
+        switch (random.nextInt(3)) {
+            case 0:
+                return new SalariedEmployee(id, "Salaried " + n, 30_000 + random.nextInt(90_000));
+            case 1:
+                return new HourlyEmployee(id, "Hourly " + n, 15 + random.nextInt(60) + 0.25 * random.nextInt(4),
+                        random.nextInt(200));
+            default:
+                return new CommissionedEmployee(id, "Commissioned " + n, 0.01 * (1 + random.nextInt(20)),
+                        random.nextInt(500_000));
+        }
+    }
+
+    private static Map<String, Object> change(Employee employee, Random random, int n) {
+        Map<String, Object> changes = new TreeMap<>();
+        changes.put("name", "Renamed " + n);
+        if (employee instanceof SalariedEmployee) {
+            changes.put("salary", 30_000 + random.nextInt(90_000));
+        } else if (employee instanceof HourlyEmployee) {
+            changes.put("hoursWorked", random.nextInt(200));
+        } else {
+            changes.put("totalSales", random.nextInt(500_000));
+        }
+        return changes;
+    }
+
+    // Every employee by id, as its journal record plus payment details, paging through the index
+    private static Map<Integer, String> describeAll(PayrollSystem system) {
+        Map<Integer, String> all = new TreeMap<>();
+        int cursor = EmployeePage.START;
+        EmployeePage page;
+        do {
+            page = system.listEmployees(cursor, 500);
+            for (Employee employee : page.getEmployees()) {
+                assertTrue(employee.getEmployeeId() > cursor, "pages run in id order");
+                cursor = employee.getEmployeeId();
+                assertNull(all.put(cursor, EmployeeCsv.format(employee) + "|" + employee.getPaymentMethod()
+                        + "|" + employee.getPaymentDetails()));
+            }
+        } while (page.hasMore());
+        return all;
+    }
+
+    private static long sumOfPay(PayrollSystem system) {
+        long gross = 0;
+        for (Employee employee : system.listEmployees(EmployeePage.START, Integer.MAX_VALUE).getEmployees()) {
+            gross += employee.calculatePay();
+        }
+        return gross;
+    }
+}
@@ -0,0 +1,143 @@
+package payroll;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayrollSystemTest {
+    private PayrollSystem system;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        WorkingDirectory.clear();
+        system = new PayrollSystem();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (system != null) {
+            system.close();
+        }
+    }
+
+    // Looking up, changing or removing an id far outside the index must not grow it to fit the id
+    @Test
+    void idsOutsideTheIndexAreNotFound() throws IOException {
+        Employee employee = new SalariedEmployee(EmployeeIdGenerator.generateId(), "Alice Smith", 85_000);
+        system.createEmployee(employee);
+        for (int id : new int[]{2_000_000_000, Integer.MAX_VALUE, -2_000_000_000, Integer.MIN_VALUE}) {
+            assertNull(system.getEmployee(id));
+            assertFalse(system.deleteEmployee(id));
+            assertNull(system.updateEmployee(id, Map.of("name", "Bob Jones")));
+            assertFalse(system.batchUpdate(id, "name", "Bob Jones"));
+            assertFalse(system.batchRemove(id));
+        }
+        assertEquals(1, system.getPayrollTotals().employees);
+        assertSame(employee, system.getEmployee(employee.getEmployeeId()));
+    }
+
+    // Names that would split a journal record, or add records of their own, are refused on every path
+    // that stores a name; the journal then replays to exactly the employees there were
+    @Test
+    void hostileNamesNeverReachTheJournal() throws IOException {
+        Employee alice = new SalariedEmployee(EmployeeIdGenerator.generateId(), "Alice Smith", 85_000);
+        Employee bob = new HourlyEmployee(EmployeeIdGenerator.generateId(), "Bob Jones", 27.5, 160);
+        system.createEmployee(alice);
+        system.createEmployee(bob);
+        List<String> hostile = List.of("Mallory\nD," + bob.getEmployeeId(),
+                "Mallory\nU," + bob.getEmployeeId() + ",Mallory,SALARIED,1000000.0",
+                "Mallory\r\nD," + bob.getEmployeeId(), "Smith, Alice", "Mallory\u0000", "Mallory\u0085");
+
+        for (String name : hostile) {
+            assertThrows(IllegalArgumentException.class, () -> system.updateEmployee(alice.getEmployeeId(), Map.of("name", name)));
+            assertFalse(system.updateDetails(alice, "name", name));
+            assertFalse(system.batchUpdate(alice.getEmployeeId(), "name", name));
+            assertThrows(IllegalArgumentException.class, () -> new SalariedEmployee(101, name, 1));
+            assertThrows(IllegalArgumentException.class, () -> alice.copy().setName(name));
+            assertNotNull(Employee.nameProblem(name), name);
+        }
+        File changes = new File("changes.txt");
+        Files.writeString(changes.toPath(), "ADD,Mal\u0007lory,SALARIED,1000\n");
+        new BulkImporter(system, 10).run(changes);
+
+        system.close();
+        system = new PayrollSystem();
+        assertEquals(2, system.getPayrollTotals().employees);
+        assertEquals("Alice Smith", system.getEmployee(alice.getEmployeeId()).getName());
+        assertEquals("Bob Jones", system.getEmployee(bob.getEmployeeId()).getName());
+        assertEquals(bob.calculatePay(), system.getEmployee(bob.getEmployeeId()).calculatePay());
+    }
+
+    // Anything else a name may hold comes back from the journal as it was written
+    @Test
+    void unusualNamesRoundTripThroughTheJournal() throws IOException {
+        String name = "  O'Brien \"Jr\"; D U – Zoë 李 ";
+        Employee employee = new CommissionedEmployee(EmployeeIdGenerator.generateId(), "Carol White", 0.07, 240_000);
+        system.createEmployee(employee);
+        assertEquals(name, system.updateEmployee(employee.getEmployeeId(), Map.of("name", name)).getName());
+
+        system.close();
+        system = new PayrollSystem();
+        assertEquals(name, system.getEmployee(employee.getEmployeeId()).getName());
+    }
+
+    // A rate is kept in millionths; one with more decimals is refused where it comes in instead of
+    // being rounded to a rate nobody entered
+    @Test
+    void ratesFinerThanMillionthsAreRefused() throws IOException {
+        assertTrue(Money.isExactRate(0.07));
+        assertTrue(Money.isExactRate(0.123456));
+        assertFalse(Money.isExactRate(0.1234567));
+        assertFalse(Money.isExactRate(1e-7));
+
+        CommissionedEmployee carol = new CommissionedEmployee(EmployeeIdGenerator.generateId(), "Carol White", 0.07, 240_000);
+        system.createEmployee(carol);
+        assertThrows(IllegalArgumentException.class, () -> system.updateEmployee(carol.getEmployeeId(), Map.of("commissionRate", 0.0712345)));
+        assertFalse(system.batchUpdate(carol.getEmployeeId(), "commissionRate", 0.0712345));
+        assertTrue(system.batchUpdate(carol.getEmployeeId(), "commissionRate", 0.071234));
+        assertEquals(0.071234, ((CommissionedEmployee) system.getEmployee(carol.getEmployeeId())).getCommissionRate());
+        assertThrows(IllegalArgumentException.class, () -> TaxTable.flat(0.2500001));
+
+        File changes = new File("changes.txt");
+        Files.writeString(changes.toPath(), "ADD,Dan Brown,COMMISSIONED,0.0500001,1000\n");
+        new BulkImporter(system, 10).run(changes);
+        assertEquals(1, system.getPayrollTotals().employees);
+    }
+
+    // Amounts, and pay, too large to tax without overflowing are refused where they come in, and leave
+    // the stored employee, the totals and the journal as they were
+    @Test
+    void amountsTooLargeToTaxAreRefused() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> new SalariedEmployee(EmployeeIdGenerator.generateId(), "Ann Lee", 4.6e11));
+        HourlyEmployee bob = new HourlyEmployee(EmployeeIdGenerator.generateId(), "Bob Stone", 1e9, 1);
+        system.createEmployee(bob);
+        assertThrows(IllegalArgumentException.class, () -> system.updateEmployee(bob.getEmployeeId(), Map.of("hoursWorked", 1_000)));
+        assertFalse(system.batchUpdate(bob.getEmployeeId(), "hourlyRate", 4.6e11));
+        assertThrows(IllegalArgumentException.class, () -> system.createEmployee(
+                new CommissionedEmployee(EmployeeIdGenerator.generateId(), "Carol White", 100_000, Integer.MAX_VALUE)));
+        assertEquals(Integer.valueOf(7), PayrollSystem.changedValue("7"));
+        assertEquals(3e10, PayrollSystem.changedValue("30000000000"));
+
+        File changes = new File("changes.txt");
+        Files.writeString(changes.toPath(), "ADD,Dan Brown,SALARIED,460000000000\n"
+                + "ADD,Eve Stone,HOURLY,1000000000,1000\n"
+                + "UPDATE," + bob.getEmployeeId() + ",hoursWorked,30000000000\n");
+        new BulkImporter(system, 10).run(changes);
+        system.awaitPersisted();
+
+        assertEquals(1, system.getPayrollTotals().employees);
+        assertEquals(100_000_000_000L, system.getPayrollTotals().gross);
+        assertTrue(system.checkPayrollTotals());
+        system.close();
+        system = new PayrollSystem();
+        assertEquals(1, ((HourlyEmployee) system.getEmployee(bob.getEmployeeId())).getHoursWorked());
+    }
+}
@@ -0,0 +1,151 @@
+package payroll;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+// StubBankReceiver class standing in for a bank's file intake in tests of DisbursementRun.
+// It reads a payment file the way a bank would before paying anything out: every
+// record the right length, a header first and a trailer last, payments in id order, and the
+// trailer's count and total matching the payments. It answers with an acknowledgement that either
+// accepts the file with what it counted or rejects it with the first problem found.
+class StubBankReceiver {
+    private static final int LINE_LENGTH = DisbursementRun.RECORD_LENGTH + 1;
+
+    public BankAcknowledgement receive(File file) throws IOException {
+        byte[] line = new byte[LINE_LENGTH];
+        int lineNumber = 0;
+        String code = null;
+        int payments = 0;
+        long total = 0;
+        long lastId = -1;
+        boolean trailer = false;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+            while (true) {
+                int read = in.readNBytes(line, 0, LINE_LENGTH);
+                if (read == 0) break;
+                lineNumber++;
+                if (read < LINE_LENGTH || line[LINE_LENGTH - 1] != '\n') {
+                    return BankAcknowledgement.rejected(file, "Record " + lineNumber + " is not " + DisbursementRun.RECORD_LENGTH + " characters");
+                }
+                if (trailer) {
+                    return BankAcknowledgement.rejected(file, "Record " + lineNumber + " follows the trailer");
+                }
+                char kind = (char) line[0];
+                if (lineNumber == 1) {
+                    if (kind != 'H') {
+                        return BankAcknowledgement.rejected(file, "File does not start with a header");
+                    }
+                    code = text(line, 1, 10);
+                    continue;
+                }
+                if (kind == 'T') {
+                    long count = number(line, 1, 10);
+                    long declared = number(line, 11, 18);
+                    if (count != payments || declared != total) {
+                        return BankAcknowledgement.rejected(file, "Trailer declares " + count + " payments of " + declared
+                                + " cents but the file holds " + payments + " of " + total);
+                    }
+                    trailer = true;
+                    continue;
+                }
+                long employeeId;
+                if (kind == 'D') {
+                    employeeId = number(line, 1, 10);
+                } else if (kind == 'C') {
+                    employeeId = number(line, 21, 10);
+                } else {
+                    return BankAcknowledgement.rejected(file, "Record " + lineNumber + " has unknown type '" + kind + "'");
+                }
+                long amount = number(line, 61, 15);
+                if (employeeId < 0 || amount <= 0) {
+                    return BankAcknowledgement.rejected(file, "Record " + lineNumber + " has a bad employee id or amount");
+                }
+                if (employeeId <= lastId) {
+                    return BankAcknowledgement.rejected(file, "Record " + lineNumber + " is out of order");
+                }
+                lastId = employeeId;
+                payments++;
+                total += amount;
+            }
+        }
+        if (code == null) {
+            return BankAcknowledgement.rejected(file, "File is empty");
+        }
+        if (!trailer) {
+            return BankAcknowledgement.rejected(file, "File has no trailer");
+        }
+        return BankAcknowledgement.accepted(file, code, payments, total);
+    }
+
+    private static String text(byte[] line, int offset, int width) {
+        return new String(line, offset, width, StandardCharsets.US_ASCII).trim();
+    }
+
+    // A zero-padded number, or -1 if the field holds anything but digits
+    private static long number(byte[] line, int offset, int width) {
+        long value = 0;
+        for (int i = offset; i < offset + width; i++) {
+            byte digit = line[i];
+            if (digit < '0' || digit > '9') return -1;
+            value = value * 10 + (digit - '0');
+        }
+        return value;
+    }
+}
+
+// What StubBankReceiver said about a payment file
+class BankAcknowledgement {
+    private final File file;
+    private final boolean accepted;
+    private final String code;
+    private final int payments;
+    private final long total;
+    private final String reason;
+
+    private BankAcknowledgement(File file, boolean accepted, String code, int payments, long total, String reason) {
+        this.file = file;
+        this.accepted = accepted;
+        this.code = code;
+        this.payments = payments;
+        this.total = total;
+        this.reason = reason;
+    }
+
+    static BankAcknowledgement accepted(File file, String code, int payments, long total) {
+        return new BankAcknowledgement(file, true, code, payments, total, null);
+    }
+
+    static BankAcknowledgement rejected(File file, String reason) {
+        return new BankAcknowledgement(file, false, null, 0, 0, reason);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    // Bank code from the header, for an accepted file
+    public String getCode() {
+        return code;
+    }
+
+    public int getPayments() {
+        return payments;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    // Why the file was rejected, or null if it was accepted
+    public String getReason() {
+        return reason;
+    }
+}
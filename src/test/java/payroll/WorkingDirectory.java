@@ -0,0 +1,34 @@
+package payroll;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// WorkingDirectory class for tests that start a PayrollSystem, which keeps its files in the working
+// directory. Surefire runs the tests in target/test-work (see app/pom.xml); clear() empties it so that
+// each test starts without employees, users or journal. It refuses to touch any other directory.
+final class WorkingDirectory {
+    private static final String NAME = "test-work";
+
+    private WorkingDirectory() {
+    }
+
+    static void clear() throws IOException {
+        File directory = new File("").getAbsoluteFile();
+        if (!directory.getName().equals(NAME)) {
+            throw new IllegalStateException("Tests must run in a directory named " + NAME + ", not " + directory);
+        }
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            try (Stream<Path> paths = Files.walk(file.toPath())) {
+                for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+}